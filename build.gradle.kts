@@ -32,6 +32,12 @@ repositories {
     }
 }
 
+// Microbenchmarks JMH, lancés par ./gradlew jmh (-Pjmh.includes=<regex> pour en choisir)
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
 dependencies {
     compileOnly(libs.io.papermc.paper.paper.api)
     compileOnly(libs.corePaper)
@@ -41,6 +47,34 @@ dependencies {
 
     implementation(libs.dev.dejvokep.boosted.yaml)
     implementation(libs.folialib)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
+
+    "jmhImplementation"(libs.jmh.core)
+    "jmhAnnotationProcessor"(libs.jmh.generator.annprocess)
+}
+
+// Les classes testées référencent les API fournies par le serveur
+configurations.testImplementation {
+    extendsFrom(configurations.compileOnly.get())
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+// Les benchmarks s'exécutent eux aussi hors du serveur
+configurations.named("jmhImplementation") {
+    extendsFrom(configurations.compileOnly.get(), configurations.implementation.get())
+}
+
+tasks.register<JavaExec>("jmh") {
+    description = "Lance les microbenchmarks JMH"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = listOfNotNull(project.findProperty("jmh.includes")?.toString())
 }
 
 tasks.shadowJar {
@@ -0,0 +1,58 @@
+package fr.iban.guilds.benchmark;
+
+import fr.iban.guilds.model.GuildRank;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mise en forme d'un message du chat de guilde et nom du rang dans les menus, avant et après la mise en cache
+ * du nom de rang interprété en MiniMessage
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatFormatBenchmark {
+
+    //Mêmes composants que ChatListeners
+    private static final Component TAG = Component.text("[Guilde] ", NamedTextColor.GRAY);
+    private static final Component SPACE = Component.text(" ");
+    private static final Component ARROW = Component.text(" ➤ ", NamedTextColor.WHITE);
+
+    private final Component message = Component.text("Quelqu'un pour le donjon ?");
+    private GuildRank rank;
+
+    @Setup
+    public void setUp() {
+        rank = new GuildRank(UUID.randomUUID(), "<gradient:gold:yellow>Officier</gradient>", 1, Set.of());
+    }
+
+    @Benchmark
+    public Component chatBefore() {
+        Component rankName = MiniMessage.miniMessage().deserialize(rank.getName());
+        return Component.textOfChildren(TAG, rankName, SPACE, Component.text("Player"), ARROW, message);
+    }
+
+    @Benchmark
+    public Component chatAfter() {
+        return Component.textOfChildren(TAG, rank.getDisplayName(), SPACE, Component.text("Player"), ARROW, message);
+    }
+
+    @Benchmark
+    public String menuBefore() {
+        return MiniMessage.miniMessage().serialize(MiniMessage.miniMessage().deserialize(rank.getName()));
+    }
+
+    @Benchmark
+    public String menuAfter() {
+        return rank.getMiniMessageName();
+    }
+}
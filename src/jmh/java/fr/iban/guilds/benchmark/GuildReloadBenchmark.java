@@ -0,0 +1,93 @@
+package fr.iban.guilds.benchmark;
+
+import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.enums.GuildPermission;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.GuildRank;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publication d'une guilde rechargée (construction hors des index, remplacement dans la map et chez les alliés)
+ * pendant que d'autres threads lisent ses membres et ses alliances, comme le chat et les commandes.
+ * La lecture en base n'est pas mesurée.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GuildReloadBenchmark {
+
+    @Param({"10", "100"})
+    public int members;
+
+    private static final int ALLIES = 5;
+
+    private final Map<UUID, Guild> guilds = new ConcurrentHashMap<>();
+    private final UUID guildId = UUID.randomUUID();
+    private final List<UUID> memberIds = new ArrayList<>();
+    private final List<Guild> allies = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < members; i++) {
+            memberIds.add(UUID.randomUUID());
+        }
+        for (int i = 0; i < ALLIES; i++) {
+            Guild ally = new Guild("ally-" + i);
+            guilds.put(ally.getId(), ally);
+            allies.add(ally);
+        }
+        reload();
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(1)
+    public Guild reload() {
+        Guild newGuild = new Guild(guildId, "guild", 0, 0, new Date());
+        newGuild.setRanks(List.of(
+                new GuildRank(UUID.randomUUID(), "member", 0, Set.of()),
+                new GuildRank(UUID.randomUUID(), "officer", 1, Set.of(GuildPermission.INVITE_MEMBER)),
+                new GuildRank(UUID.randomUUID(), "owner", 2, Set.of(GuildPermission.values()))
+        ));
+        for (UUID uuid : memberIds) {
+            newGuild.addMember(new GuildPlayer(uuid, newGuild, newGuild.getDefautRank(), ChatMode.PUBLIC));
+        }
+        for (Guild ally : allies) {
+            newGuild.addAlliance(ally);
+        }
+        newGuild.markClean();
+
+        guilds.put(guildId, newGuild);
+        for (Guild ally : newGuild.getAlliances()) {
+            ally.replaceAlliance(newGuild);
+        }
+        return newGuild;
+    }
+
+    @Benchmark
+    @Group("reload")
+    @GroupThreads(3)
+    public int read() {
+        Guild guild = guilds.get(guildId);
+        int count = guild.getMembers().size();
+        for (Guild ally : guild.getAlliances()) {
+            for (Guild allyOfAlly : ally.getAlliances()) {
+                count += allyOfAlly.getMembers().size();
+            }
+        }
+        return count;
+    }
+}
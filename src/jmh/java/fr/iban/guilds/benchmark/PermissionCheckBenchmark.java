@@ -0,0 +1,75 @@
+package fr.iban.guilds.benchmark;
+
+import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.enums.GuildPermission;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.GuildRank;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GuildPlayer.isGranted avant et après le cache de guilds.bypass et le masque de permissions.
+ * Hors serveur, Bukkit.getPlayer et le plugin de permissions sont remplacés par des tables de hachage :
+ * le coût mesuré avant le cache est donc un minimum.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCheckBenchmark {
+
+    private static final int ONLINE_PLAYERS = 200;
+    private static final GuildPermission CHECKED = GuildPermission.MANAGE_RANKS;
+
+    //Joueurs connectés et leurs permissions, à la place de Bukkit.getPlayer et de Player#hasPermission
+    private final Map<UUID, Map<String, Boolean>> onlinePlayers = new ConcurrentHashMap<>();
+    private Guild guild;
+    private GuildPlayer guildPlayer;
+    private Set<GuildPermission> permissionSet;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < ONLINE_PLAYERS; i++) {
+            Map<String, Boolean> permissions = new HashMap<>();
+            permissions.put("guilds.bypass", false);
+            permissions.put("guilds.use", true);
+            onlinePlayers.put(UUID.randomUUID(), permissions);
+        }
+
+        guild = new Guild("guild");
+        guild.setOwnerUUID(UUID.randomUUID());
+        GuildRank rank = new GuildRank(UUID.randomUUID(), "member", 0, Set.of(GuildPermission.KICK_MEMBER, GuildPermission.INVITE_MEMBER));
+        guild.setRanks(List.of(rank));
+
+        UUID uuid = onlinePlayers.keySet().iterator().next();
+        guildPlayer = new GuildPlayer(uuid, guild, rank, ChatMode.PUBLIC);
+        //Les permissions étaient désérialisées par Gson dans un HashSet
+        permissionSet = new HashSet<>(rank.getPermissions());
+    }
+
+    @Benchmark
+    public boolean before() {
+        UUID uuid = guildPlayer.getUuid();
+        Map<String, Boolean> player = onlinePlayers.get(uuid);
+        if (player != null && player.getOrDefault("guilds.bypass", false)) {
+            return true;
+        }
+        return permissionSet.contains(CHECKED) || guild.getOwnerUUID().equals(uuid);
+    }
+
+    @Benchmark
+    public boolean after() {
+        return guildPlayer.isGranted(CHECKED);
+    }
+}
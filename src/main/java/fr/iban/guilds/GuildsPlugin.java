@@ -15,17 +15,29 @@ import fr.iban.guilds.api.service.GuildBankService;
 import fr.iban.guilds.api.service.GuildRankService;
 import fr.iban.guilds.api.service.GuildService;
 import fr.iban.guilds.command.GuildCMD;
+import fr.iban.guilds.lang.Lang;
 import fr.iban.guilds.lang.LangManager;
 import fr.iban.guilds.listener.ChatListeners;
 import fr.iban.guilds.listener.CoreMessageListener;
+import fr.iban.guilds.listener.PlayerListeners;
 import fr.iban.guilds.listener.ServiceListeners;
 import fr.iban.guilds.manager.GuildsManagerImpl;
+import fr.iban.guilds.manager.LogWriter;
+import fr.iban.guilds.manager.MessageBroadcaster;
+import fr.iban.guilds.manager.OnlineTracker;
+import fr.iban.guilds.manager.PersistenceQueue;
+import fr.iban.guilds.manager.RecoveryJournal;
+import fr.iban.guilds.manager.SyncDebouncer;
 import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.dto.RecoveryEntry;
 import fr.iban.guilds.placeholderapi.GuildsPlaceholderExpansion;
 import fr.iban.guilds.service.GuildAllianceServiceImpl;
 import fr.iban.guilds.service.GuildBankServiceImpl;
 import fr.iban.guilds.service.GuildRankServiceImpl;
 import fr.iban.guilds.service.GuildServiceImpl;
+import fr.iban.guilds.util.ChatLogAppender;
+import fr.iban.guilds.util.RecoverableTask;
+import fr.iban.guilds.util.StripedExecutor;
 import fr.iban.guilds.zmenu.ZMenuManager;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.Bukkit;
@@ -40,22 +52,38 @@ import revxrsal.commands.exception.CommandErrorException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public final class GuildsPlugin extends JavaPlugin {
 
     private static GuildsPlugin instance;
     private GuildManager guildsManager;
+    private PersistenceQueue persistenceQueue;
+    private RecoveryJournal recoveryJournal;
+    private SyncDebouncer syncDebouncer;
+    private OnlineTracker onlineTracker;
+    private LogWriter logWriter;
+    private ExecutorService logReadExecutor;
+    private MessageBroadcaster messageBroadcaster;
+    private ChatLogAppender chatLogAppender;
 
     public static final String GUILD_SYNC_CHANNEL = "GuildSyncChannel";
     public static final String GUILD_PLAYER_SYNC_CHANNEL = "GuildPlayerSyncChannel";
+    public static final String GUILD_DELTA_CHANNEL = "GuildDeltaChannel";
+    public static final String GUILD_PRESENCE_CHANNEL = "GuildPresenceChannel";
+    public static final String GUILD_BROADCAST_CHANNEL = "GuildBroadcastChannel";
     public static final String GUILD_INVITE_ADD = "AddGuildInviteChannel";
     public static final String GUILD_INVITE_REVOKE = "RevokeGuildInviteSyncChannel";
     public static final String GUILD_ALLIANCE_REQUEST = "GuildAllianceRequestChannel";
 
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private static final int GUILD_SUGGESTIONS_LIMIT = 50;
+
+    private StripedExecutor executor;
 
     private Economy econ = null;
     private FoliaLib foliaLib;
@@ -76,10 +104,23 @@ public final class GuildsPlugin extends JavaPlugin {
 
         loadConfig();
 
+        this.executor = new StripedExecutor("Guilds-Storage",
+                config.getInt("persistence.stripes", 4),
+                config.getBoolean("persistence.virtual-threads", false));
+
+        this.messageBroadcaster = new MessageBroadcaster();
+        this.chatLogAppender = new ChatLogAppender(this);
         this.langManager = new LangManager(this);
         langManager.load();
 
-        this.guildsManager = new GuildsManagerImpl(this);
+        GuildsManagerImpl guildsManagerImpl = new GuildsManagerImpl(this);
+        this.guildsManager = guildsManagerImpl;
+        this.persistenceQueue = guildsManagerImpl.getPersistenceQueue();
+        this.recoveryJournal = guildsManagerImpl.getRecoveryJournal();
+        this.syncDebouncer = guildsManagerImpl.getSyncDebouncer();
+        this.onlineTracker = guildsManagerImpl.getOnlineTracker();
+        this.logWriter = guildsManagerImpl.getLogWriter();
+        this.logReadExecutor = guildsManagerImpl.getLogReadExecutor();
         this.guildService = new GuildServiceImpl(this);
         this.guildBankService = new GuildBankServiceImpl(this);
         this.guildAllianceService = new GuildAllianceServiceImpl(this);
@@ -97,8 +138,14 @@ public final class GuildsPlugin extends JavaPlugin {
         registerListeners(
                 new CoreMessageListener(this),
                 new ServiceListeners(this),
-                new ChatListeners(this)
+                new ChatListeners(this, chatLogAppender),
+                new PlayerListeners(guildsManagerImpl.getBypassCache(), onlineTracker)
         );
+        Bukkit.getOnlinePlayers().forEach(guildsManagerImpl.getBypassCache()::refresh);
+        guildsManagerImpl.getBypassCache().startRefreshTask();
+        onlineTracker.startReconcileTask();
+        chatLogAppender.start();
+        guildsManagerImpl.getLogRetention().start();
 
         this.zMenuManager = new ZMenuManager(this);
         zMenuManager.loadZMenu();
@@ -108,17 +155,71 @@ public final class GuildsPlugin extends JavaPlugin {
             placeholdersExpansion = new GuildsPlaceholderExpansion(this);
             placeholdersExpansion.register();
         }
+
+        guildsManagerImpl.loadAsync();
     }
 
     @Override
     public void onDisable() {
-        executor.shutdown();
+        chatLogAppender.flush();
+        logReadExecutor.shutdownNow();
+        shutdownStorage();
         zMenuManager.unloadZMenu();
         if(placeholdersExpansion != null){
             placeholdersExpansion.unregister();
         }
     }
 
+    /**
+     * Envoie les sauvegardes en attente aux files de stockage, laisse les files se vider puis écrit les journaux.
+     * Toutes les étapes partagent le délai configuré, ce qui n'a pas pu être écrit à temps est conservé
+     * dans le fichier de reprise.
+     */
+    private void shutdownStorage() {
+        long timeout = config.getLong("persistence.shutdown-timeout", 10L);
+        long start = System.currentTimeMillis();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+
+        persistenceQueue.close();
+        executor.shutdown();
+
+        boolean drained;
+        try {
+            drained = executor.awaitTermination(remaining(deadline), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        }
+
+        if (!drained) {
+            List<Runnable> notStarted = executor.shutdownNow();
+            List<RecoveryEntry> entries = new ArrayList<>();
+            int lost = 0;
+            for (Runnable task : notStarted) {
+                if (task instanceof RecoverableTask recoverableTask) {
+                    entries.addAll(recoverableTask.getRecoveryEntries());
+                } else {
+                    lost++;
+                }
+            }
+            recoveryJournal.append(entries);
+
+            getLogger().warning("Délai d'arrêt de " + timeout + "s dépassé : " + notStarted.size() + " tâches de stockage interrompues"
+                    + (lost > 0 ? ", dont " + lost + " perdues." : "."));
+        }
+
+        //Après les sauvegardes, pour que les guildes créées juste avant l'arrêt existent déjà en base
+        logWriter.close(remaining(deadline), TimeUnit.NANOSECONDS);
+
+        if (drained) {
+            getLogger().info("Écritures en attente terminées en " + (System.currentTimeMillis() - start) + "ms.");
+        }
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0L, deadline - System.nanoTime());
+    }
+
     public static GuildsPlugin getInstance() {
         return instance;
     }
@@ -134,10 +235,20 @@ public final class GuildsPlugin extends JavaPlugin {
         BukkitCommandHandler commandHandler = BukkitCommandHandler.create(this);
         commandHandler.accept(CoreBukkitPlugin.getInstance().getCommandHandlerVisitor());
 
+        commandHandler.registerCondition((actor, command, arguments) -> {
+            if (!guildsManager.isLoaded()) {
+                throw new CommandErrorException(Lang.ERROR_LOADING.plainText());
+            }
+        });
+
         //Guild resolver
-        commandHandler.getAutoCompleter().registerParameterSuggestions(Guild.class, (args, sender, command) -> guildsManager.getGuildNames());
+        commandHandler.getAutoCompleter().registerParameterSuggestions(Guild.class, (args, sender, command) ->
+                guildsManager.getGuildNames(args.isEmpty() ? "" : args.getLast(), GUILD_SUGGESTIONS_LIMIT));
         commandHandler.registerValueResolver(Guild.class, context -> {
             String value = context.arguments().pop();
+            if (!guildsManager.isLoaded()) {
+                throw new CommandErrorException(Lang.ERROR_LOADING.plainText());
+            }
             Guild guild = guildsManager.getGuildByName(value);
             if (guild == null) {
                 throw new CommandErrorException("La guilde " + value + " n''existe pas.");
@@ -149,8 +260,41 @@ public final class GuildsPlugin extends JavaPlugin {
         commandHandler.registerBrigadier();
     }
 
+    /**
+     * Exécute une tâche de stockage sur la file associée à la clé (l'id de la guilde concernée) :
+     * l'ordre est conservé pour une même guilde, les autres guildes ne sont pas bloquées.
+     */
+    public void runAsyncQueued(Object key, Runnable runnable) {
+        try {
+            executor.execute(key, runnable);
+        } catch (RejectedExecutionException e) {
+            onRejected(runnable);
+        }
+    }
+
+    /**
+     * Exécute une tâche de stockage qui ne concerne pas une guilde en particulier
+     */
     public void runAsyncQueued(Runnable runnable) {
-        executor.execute(runnable);
+        try {
+            executor.executeOnStripe(0, runnable);
+        } catch (RejectedExecutionException e) {
+            onRejected(runnable);
+        }
+    }
+
+    /**
+     * Les files sont arrêtées : les écritures sont conservées pour le prochain démarrage,
+     * les relectures n'ont plus d'intérêt et sont abandonnées
+     */
+    private void onRejected(Runnable runnable) {
+        if (runnable instanceof RecoverableTask recoverableTask) {
+            recoveryJournal.append(recoverableTask.getRecoveryEntries());
+        }
+    }
+
+    public StripedExecutor getStorageExecutor() {
+        return executor;
     }
 
     public void setupEconomy() {
@@ -195,6 +339,26 @@ public final class GuildsPlugin extends JavaPlugin {
         return guildsManager;
     }
 
+    public PersistenceQueue getPersistenceQueue() {
+        return persistenceQueue;
+    }
+
+    public SyncDebouncer getSyncDebouncer() {
+        return syncDebouncer;
+    }
+
+    public OnlineTracker getOnlineTracker() {
+        return onlineTracker;
+    }
+
+    public LogWriter getLogWriter() {
+        return logWriter;
+    }
+
+    public MessageBroadcaster getMessageBroadcaster() {
+        return messageBroadcaster;
+    }
+
     public ZMenuManager getMenuManager() {
         return zMenuManager;
     }
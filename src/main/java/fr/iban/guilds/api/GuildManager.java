@@ -1,7 +1,11 @@
 package fr.iban.guilds.api;
 
+import fr.iban.guilds.enums.GuildLogCategory;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.dto.GuildDelta;
+import fr.iban.guilds.model.dto.GuildLogEvent;
+import fr.iban.guilds.model.dto.GuildLogPage;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.Nullable;
 
@@ -11,19 +15,49 @@ import java.util.concurrent.CompletableFuture;
 
 public interface GuildManager {
 
+    /**
+     * @return true une fois les guildes chargées depuis la base de données
+     */
+    boolean isLoaded();
+
+    /**
+     * @return Un future complété une fois les guildes chargées, ou en erreur si le chargement a échoué
+     */
+    CompletableFuture<Void> getLoadFuture();
+
     @Nullable Guild getGuildByPlayerId(UUID uuid);
     @Nullable Guild getGuildByPlayer(Player player);
     @Nullable Guild getGuildByName(String name);
     @Nullable Guild getGuildById(UUID uuid);
     @Nullable GuildPlayer getGuildPlayer(UUID uuid);
     List<String> getGuildNames();
+    List<String> getGuildNames(String prefix, int limit);
     List<Guild> getOnlineGuilds();
+
+    /**
+     * @return Une page du classement des guildes par nombre de membres connectés
+     */
+    List<Guild> getOnlineGuilds(int offset, int limit);
+    int getOnlineGuildCount();
+    void addMember(Guild guild, GuildPlayer guildPlayer);
+    void removeMember(Guild guild, UUID uuid);
     void saveGuild(Guild guild);
     void savePlayer(GuildPlayer guildPlayer);
     void deleteGuild(Guild guild);
     void deletePlayer(GuildPlayer guildPlayer);
     void addLog(Guild guild, String log);
-    CompletableFuture<List<String>> getLogsAsync(Guild guild);
+    void addLog(Guild guild, GuildLogEvent event);
+
+    /**
+     * @param page Numéro de page, à partir de 1
+     * @param category Catégorie d'événements affichée, null pour toutes
+     */
+    CompletableFuture<GuildLogPage> getLogsAsync(Guild guild, int page, @Nullable GuildLogCategory category);
     void reloadGuildFromDB(UUID guildId);
     void reloadGuildPlayerFromDB(UUID uuid);
+
+    /**
+     * Applique les modifications reçues d'un autre serveur, ou recharge la guilde si des versions ont été manquées
+     */
+    void applyDelta(GuildDelta delta);
 }
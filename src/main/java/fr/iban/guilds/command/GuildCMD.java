@@ -8,12 +8,18 @@ import fr.iban.guilds.api.service.GuildAllianceService;
 import fr.iban.guilds.api.service.GuildBankService;
 import fr.iban.guilds.api.service.GuildService;
 import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.enums.GuildLogCategory;
 import fr.iban.guilds.enums.GuildPermission;
 import fr.iban.guilds.lang.Lang;
+import fr.iban.guilds.manager.LogWriter;
+import fr.iban.guilds.manager.MessageBroadcaster;
+import fr.iban.guilds.manager.PersistenceQueue;
+import fr.iban.guilds.manager.SyncDebouncer;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
 import fr.iban.guilds.model.GuildRank;
 import fr.iban.guilds.util.ChatUtils;
+import fr.iban.guilds.util.StripedExecutor;
 import net.kyori.adventure.text.Component;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.OfflinePlayer;
@@ -23,6 +29,7 @@ import revxrsal.commands.bukkit.BukkitCommandActor;
 import revxrsal.commands.bukkit.annotation.CommandPermission;
 
 import java.util.List;
+import java.util.StringJoiner;
 
 @Command({"guild", "g"})
 public class GuildCMD {
@@ -49,6 +56,59 @@ public class GuildCMD {
         sender.reply(Lang.RELOAD.component());
     }
 
+    @Subcommand("stats")
+    @CommandPermission("guilds.admin")
+    public void stats(BukkitCommandActor sender) {
+        PersistenceQueue persistenceQueue = plugin.getPersistenceQueue();
+
+        sender.reply(Lang.STATS_HEADER.component());
+        sender.reply(Lang.STATS_PERSISTENCE.component(
+                "depth", String.valueOf(persistenceQueue.getDepth()),
+                "merged", String.valueOf(persistenceQueue.getMergedSaves()),
+                "flushes", String.valueOf(persistenceQueue.getFlushCount()),
+                "failed", String.valueOf(persistenceQueue.getFailedFlushCount()),
+                "last", String.valueOf(persistenceQueue.getLastFlushMillis()),
+                "average", String.valueOf(persistenceQueue.getAverageFlushMillis())
+        ));
+
+        SyncDebouncer syncDebouncer = plugin.getSyncDebouncer();
+        sender.reply(Lang.STATS_SYNC.component(
+                "received", String.valueOf(syncDebouncer.getReceived()),
+                "merged", String.valueOf(syncDebouncer.getMerged()),
+                "dropped", String.valueOf(syncDebouncer.getDroppedDeltas())
+        ));
+
+        LogWriter logWriter = plugin.getLogWriter();
+        sender.reply(Lang.STATS_LOGS.component(
+                "buffered", String.valueOf(logWriter.getBuffered()),
+                "written", String.valueOf(logWriter.getWritten()),
+                "batches", String.valueOf(logWriter.getBatches()),
+                "dropped", String.valueOf(logWriter.getDropped()),
+                "failed", String.valueOf(logWriter.getFailed()),
+                "waiting", String.valueOf(logWriter.getWaiting()),
+                "orphaned", String.valueOf(logWriter.getOrphaned())
+        ));
+
+        MessageBroadcaster messageBroadcaster = plugin.getMessageBroadcaster();
+        sender.reply(Lang.STATS_BROADCAST.component(
+                "broadcasts", String.valueOf(messageBroadcaster.getBroadcasts()),
+                "average", String.format("%.1f", messageBroadcaster.getAverageRecipients()),
+                "max", String.valueOf(messageBroadcaster.getMaxRecipients()),
+                "local", String.valueOf(messageBroadcaster.getLocalRecipients()),
+                "remote", String.valueOf(messageBroadcaster.getRemoteMessages())
+        ));
+
+        StripedExecutor storageExecutor = plugin.getStorageExecutor();
+        for (int stripe = 0; stripe < storageExecutor.getStripeCount(); stripe++) {
+            sender.reply(Lang.STATS_STRIPE.component(
+                    "stripe", String.valueOf(stripe),
+                    "depth", String.valueOf(storageExecutor.getQueueDepth(stripe)),
+                    "max", String.valueOf(storageExecutor.getMaxQueueDepth(stripe)),
+                    "completed", String.valueOf(storageExecutor.getCompletedTasks(stripe))
+            ));
+        }
+    }
+
     @Subcommand("help")
     @DefaultFor({"guild", "g"})
     public void help(BukkitCommandActor actor) {
@@ -204,12 +264,15 @@ public class GuildCMD {
 
         for (GuildRank rank : guild.getRanks()) {
             List<GuildPlayer> rankMembers = guild.getMembersByRank(rank);
-            if (!rankMembers.isEmpty()) {
-                actor.reply(Lang.INFO_RANK_FORMAT.component(
-                        "rank", rank.getName(),
-                        "players", String.join(", ", rankMembers.stream().map(GuildPlayer::getName).toList())
-                ));
+            if (rankMembers.isEmpty()) {
+                continue;
+            }
+
+            StringJoiner players = new StringJoiner(", ");
+            for (GuildPlayer rankMember : rankMembers) {
+                players.add(rankMember.getName());
             }
+            actor.reply(Lang.INFO_RANK_FORMAT.component("rank", rank.getName(), "players", players.toString()));
         }
 
         List<String> alliances = guild.getAlliances().stream().map(Guild::getName).toList();
@@ -220,8 +283,7 @@ public class GuildCMD {
 
     @Subcommand("list")
     public void list(BukkitCommandActor actor, @Default("1") @Range(min = 1) @Named("page") int page) {
-        List<Guild> onlineGuilds = guildsManager.getOnlineGuilds();
-        int maxpages = (int) Math.ceil(onlineGuilds.size() / 10D);
+        int maxpages = (int) Math.ceil(guildsManager.getOnlineGuildCount() / 10D);
 
         if (page > maxpages) {
             actor.reply(Lang.LIST_INVALID_PAGE.component("maxpage", String.valueOf(maxpages)));
@@ -233,9 +295,7 @@ public class GuildCMD {
                 "maxpage", String.valueOf(maxpages)
         ));
 
-        onlineGuilds.stream()
-                .skip((page - 1) * 10L)
-                .limit(10)
+        guildsManager.getOnlineGuilds((page - 1) * 10, 10)
                 .forEach(guild -> actor.reply(Lang.LIST_FORMAT.component(
                         "guild", ChatUtils.legacyToMiniMessage(guild.getName()),
                         "online", String.valueOf(guild.getOnlinePlayerAmount()),
@@ -246,7 +306,8 @@ public class GuildCMD {
     }
 
     @Subcommand("logs")
-    public void logs(BukkitCommandActor sender, @Default("1") @Range(min = 1) @Named("page") int page, @Optional Guild guild) {
+    public void logs(BukkitCommandActor sender, @Default("1") @Range(min = 1) @Named("page") int page, @Optional Guild guild,
+                     @Optional @Flag("type") GuildLogCategory category) {
         if (guild == null && sender.isPlayer()) {
             Player player = sender.getAsPlayer();
             if (player != null) {
@@ -259,8 +320,8 @@ public class GuildCMD {
             return;
         }
 
-        guildsManager.getLogsAsync(guild).thenAccept(logs -> {
-            int maxpages = (int) Math.ceil(logs.size() / 10D);
+        guildsManager.getLogsAsync(guild, page, category).thenAccept(logPage -> {
+            int maxpages = logPage.getMaxPage();
 
             if (page > maxpages) {
                 sender.reply(Lang.LIST_INVALID_PAGE.component("maxpage", String.valueOf(maxpages)));
@@ -272,10 +333,7 @@ public class GuildCMD {
                     "maxpage", String.valueOf(maxpages)
             ));
 
-            logs.stream()
-                    .skip((page - 1) * 10L)
-                    .limit(10)
-                    .forEach(log -> sender.reply(Lang.LOGS_ENTRY.component("log", log)));
+            logPage.entries().forEach(entry -> sender.reply(Lang.LOGS_ENTRY.component("log", entry.format())));
 
             sender.reply(Lang.LOGS_FOOTER.component());
         });
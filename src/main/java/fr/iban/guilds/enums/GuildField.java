@@ -0,0 +1,11 @@
+package fr.iban.guilds.enums;
+
+public enum GuildField {
+
+    NAME,
+    BALANCE,
+    EXP,
+    HOME,
+    OWNER
+
+}
@@ -0,0 +1,27 @@
+package fr.iban.guilds.enums;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Catégories proposées pour filtrer le journal d'une guilde
+ */
+public enum GuildLogCategory {
+
+    GUILD,
+    MEMBERS,
+    RANKS,
+    HOME,
+    BANK,
+    ALLIANCES;
+
+    public Set<GuildLogType> getTypes() {
+        Set<GuildLogType> types = EnumSet.noneOf(GuildLogType.class);
+        for (GuildLogType type : GuildLogType.values()) {
+            if (type.getCategory() == this) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+}
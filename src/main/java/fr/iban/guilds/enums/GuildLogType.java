@@ -0,0 +1,50 @@
+package fr.iban.guilds.enums;
+
+public enum GuildLogType {
+
+    //Texte libre, et lignes écrites avant les événements typés
+    TEXT(0, null),
+
+    GUILD_CREATED(1, GuildLogCategory.GUILD),
+    GUILD_DISBANDED(2, GuildLogCategory.GUILD),
+    MEMBER_JOINED(3, GuildLogCategory.MEMBERS),
+    MEMBER_LEFT(4, GuildLogCategory.MEMBERS),
+    MEMBER_KICKED(5, GuildLogCategory.MEMBERS),
+    MEMBER_PROMOTED(6, GuildLogCategory.RANKS),
+    MEMBER_DEMOTED(7, GuildLogCategory.RANKS),
+    OWNER_TRANSFERRED(8, GuildLogCategory.RANKS),
+    HOME_SET(9, GuildLogCategory.HOME),
+    HOME_DELETED(10, GuildLogCategory.HOME),
+    BANK_DEPOSIT(11, GuildLogCategory.BANK),
+    BANK_WITHDRAW(12, GuildLogCategory.BANK),
+    ALLIANCE_FORMED(13, GuildLogCategory.ALLIANCES),
+    ALLIANCE_ENDED(14, GuildLogCategory.ALLIANCES);
+
+    /**
+     * Code stocké en base. Ne doit jamais changer pour un type existant.
+     */
+    private final int code;
+    private final GuildLogCategory category;
+
+    GuildLogType(int code, GuildLogCategory category) {
+        this.code = code;
+        this.category = category;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public GuildLogCategory getCategory() {
+        return category;
+    }
+
+    public static GuildLogType fromCode(int code) {
+        for (GuildLogType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return TEXT;
+    }
+}
@@ -1,27 +1,57 @@
 package fr.iban.guilds.enums;
 
+import java.util.Collection;
+import java.util.EnumSet;
+
 public enum GuildPermission {
 
     // Permissions modérateur
-    KICK_MEMBER("Expulser un membre"),
-    INVITE_MEMBER("Inviter un membre"),
+    KICK_MEMBER(0, "Expulser un membre"),
+    INVITE_MEMBER(1, "Inviter un membre"),
 
     // Permissions administrateur
-    MANAGE_LANDS("Gérer les territoires"),
-    PROMOTE_MEMBER("Promouvoir un membre"),
-    DEMOTE_MEMBER("Rétrograder un membre"),
-    MANAGE_HOME("Gérer le home"),
-    BANK_WITHDRAW("Retirer de l'argent de la banque"),
-    MANAGE_ALLIANCES("Gérer les alliances"),
-    MANAGE_RANKS("Gérer les grades");
+    MANAGE_LANDS(2, "Gérer les territoires"),
+    PROMOTE_MEMBER(3, "Promouvoir un membre"),
+    DEMOTE_MEMBER(4, "Rétrograder un membre"),
+    MANAGE_HOME(5, "Gérer le home"),
+    BANK_WITHDRAW(6, "Retirer de l'argent de la banque"),
+    MANAGE_ALLIANCES(7, "Gérer les alliances"),
+    MANAGE_RANKS(8, "Gérer les grades");
 
+    /**
+     * Position de la permission dans le masque stocké en base. Ne doit jamais changer pour une permission existante.
+     */
+    private final int bit;
     private final String name;
 
-    GuildPermission(String name){
+    GuildPermission(int bit, String name){
+        this.bit = bit;
         this.name = name;
     }
 
     public String getName() {
         return name;
     }
+
+    public long getMask() {
+        return 1L << bit;
+    }
+
+    public static long toMask(Collection<GuildPermission> permissions) {
+        long mask = 0;
+        for (GuildPermission permission : permissions) {
+            mask |= permission.getMask();
+        }
+        return mask;
+    }
+
+    public static EnumSet<GuildPermission> fromMask(long mask) {
+        EnumSet<GuildPermission> permissions = EnumSet.noneOf(GuildPermission.class);
+        for (GuildPermission permission : values()) {
+            if ((mask & permission.getMask()) != 0) {
+                permissions.add(permission);
+            }
+        }
+        return permissions;
+    }
 }
@@ -0,0 +1,9 @@
+package fr.iban.guilds.enums;
+
+public enum GuildPlayerField {
+
+    GUILD,
+    RANK,
+    CHAT_MODE
+
+}
@@ -6,6 +6,9 @@ import net.kyori.adventure.text.minimessage.MiniMessage;
 import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
 import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 public enum Lang {
     // Messages d'aide
     HELP_HEADER("messages.help.header"),
@@ -134,15 +137,26 @@ public enum Lang {
     ERROR_PLAYER_NOT_INVITED("messages.errors.player_not_invited"),
     ERROR_ALREADY_LOWEST_RANK("messages.errors.already_lowest_rank"),
     ERROR_ALREADY_HIGHEST_RANK("messages.errors.already_highest_rank"),
+    ERROR_LOADING("messages.errors.loading"),
+    PLACEHOLDER_LOADING("messages.placeholders.loading"),
     RANK_CREATED("messages.guild.rank.created"),
+
+    // Statistiques
+    STATS_HEADER("messages.stats.header"),
+    STATS_PERSISTENCE("messages.stats.persistence"),
+    STATS_STRIPE("messages.stats.stripe"),
+    STATS_SYNC("messages.stats.sync"),
+    STATS_BROADCAST("messages.stats.broadcast"),
+    STATS_LOGS("messages.stats.logs"),
     ;
 
 
     private final String key;
-    private static YamlDocument messages;
     private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
     private static final PlainTextComponentSerializer PLAIN_SERIALIZER = PlainTextComponentSerializer.plainText();
     private static final LegacyComponentSerializer LEGACY_SERIALIZER = LegacyComponentSerializer.legacySection();
+    //Remplacés en une fois à chaque chargement des messages
+    private static volatile Map<Lang, LangTemplate> templates = Map.of();
 
     Lang(String key) {
         this.key = key;
@@ -152,16 +166,35 @@ public enum Lang {
         return key;
     }
 
+    /**
+     * Compile tous les messages puis remplace les précédents en une seule fois
+     */
     public static void setMessages(YamlDocument messagesFile) {
-        messages = messagesFile;
+        Map<Lang, LangTemplate> compiled = new EnumMap<>(Lang.class);
+        for (Lang lang : values()) {
+            compiled.put(lang, compile(messagesFile.getString(lang.key, missing(lang.key))));
+        }
+        templates = compiled;
+    }
+
+    private static LangTemplate compile(String raw) {
+        return LangTemplate.compile(raw, MINI_MESSAGE, PLAIN_SERIALIZER, LEGACY_SERIALIZER);
     }
 
-    private String getRaw() {
-        return messages.getString(key, "Missing translation: " + key);
+    private static String missing(String key) {
+        return "Missing translation: " + key;
+    }
+
+    private LangTemplate template() {
+        LangTemplate template = templates.get(this);
+        if (template == null) {
+            template = compile(missing(key));
+        }
+        return template;
     }
 
     public Component component() {
-        return MINI_MESSAGE.deserialize(getRaw());
+        return template().component();
     }
 
     public Component component(String... placeholders) {
@@ -169,17 +202,15 @@ public enum Lang {
             throw new IllegalArgumentException("Placeholders must be paired (key, value)");
         }
 
-        String message = getRaw();
-        for (int i = 0; i < placeholders.length; i += 2) {
-            String placeholder = placeholders[i + 1];
-            message = message.replace("%" + placeholders[i] + "%", placeholder);
+        LangTemplate template = template();
+        if (!template.hasPlaceholders()) {
+            return template.component();
         }
-
-        return MINI_MESSAGE.deserialize(message);
+        return MINI_MESSAGE.deserialize(template.fill(placeholders));
     }
 
     public String plainText() {
-        return PLAIN_SERIALIZER.serialize(MINI_MESSAGE.deserialize(getRaw()));
+        return template().plainText();
     }
 
     public String plainText(String... placeholders) {
@@ -187,7 +218,7 @@ public enum Lang {
     }
 
     public String toString() {
-        return LEGACY_SERIALIZER.serialize(MINI_MESSAGE.deserialize(getRaw()));
+        return template().legacyText();
     }
 
     public String toString(String... placeholders) {
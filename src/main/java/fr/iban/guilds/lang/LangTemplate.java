@@ -0,0 +1,125 @@
+package fr.iban.guilds.lang;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Message découpé au chargement en segments de texte et emplacements %placeholder%.
+ * Le message sans placeholders est gardé sous forme de Component et de chaînes déjà converties.
+ */
+final class LangTemplate {
+
+    private final String raw;
+    private final String[] literals;
+    private final String[] slots;
+    private final Component component;
+    private final String plainText;
+    private final String legacyText;
+
+    private LangTemplate(String raw, String[] literals, String[] slots, Component component, String plainText, String legacyText) {
+        this.raw = raw;
+        this.literals = literals;
+        this.slots = slots;
+        this.component = component;
+        this.plainText = plainText;
+        this.legacyText = legacyText;
+    }
+
+    static LangTemplate compile(String raw, MiniMessage miniMessage, PlainTextComponentSerializer plainSerializer,
+                                LegacyComponentSerializer legacySerializer) {
+        List<String> literals = new ArrayList<>();
+        List<String> slots = new ArrayList<>();
+
+        int literalStart = 0;
+        int index = raw.indexOf('%');
+        while (index >= 0) {
+            int end = raw.indexOf('%', index + 1);
+            if (end < 0) {
+                break;
+            }
+
+            String name = raw.substring(index + 1, end);
+            if (isPlaceholderName(name)) {
+                literals.add(raw.substring(literalStart, index));
+                slots.add(name);
+                literalStart = end + 1;
+                index = raw.indexOf('%', literalStart);
+            } else {
+                //Le second % peut ouvrir un placeholder
+                index = end;
+            }
+        }
+        literals.add(raw.substring(literalStart));
+
+        Component component = miniMessage.deserialize(raw);
+        return new LangTemplate(raw, literals.toArray(String[]::new), slots.toArray(String[]::new), component,
+                plainSerializer.serialize(component), legacySerializer.serialize(component));
+    }
+
+    private static boolean isPlaceholderName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Component component() {
+        return component;
+    }
+
+    String plainText() {
+        return plainText;
+    }
+
+    String legacyText() {
+        return legacyText;
+    }
+
+    boolean hasPlaceholders() {
+        return slots.length > 0;
+    }
+
+    /**
+     * Remplace les emplacements par les valeurs données en une seule passe. Les valeurs sont insérées
+     * avant l'interprétation MiniMessage, comme les noms de rang qui contiennent leur propre mise en forme.
+     * @param placeholders Paires (nom, valeur)
+     */
+    String fill(String... placeholders) {
+        if (slots.length == 0) {
+            return raw;
+        }
+
+        StringBuilder builder = new StringBuilder(raw.length() + 16 * slots.length);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(literals[i]);
+            String value = find(slots[i], placeholders);
+            if (value == null) {
+                builder.append('%').append(slots[i]).append('%');
+            } else {
+                builder.append(value);
+            }
+        }
+        builder.append(literals[slots.length]);
+        return builder.toString();
+    }
+
+    private static String find(String slot, String[] placeholders) {
+        for (int i = 0; i < placeholders.length; i += 2) {
+            if (slot.equals(placeholders[i])) {
+                return placeholders[i + 1];
+            }
+        }
+        return null;
+    }
+}
@@ -4,6 +4,8 @@ import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
 import fr.iban.guilds.GuildsPlugin;
 import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.lang.Lang;
+import fr.iban.guilds.util.ChatLogAppender;
 import io.papermc.paper.event.player.AsyncChatEvent;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
@@ -14,66 +16,69 @@ import org.bukkit.event.Listener;
 
 public class ChatListeners implements Listener {
 
+    private static final String CHAT_PREFIX = "!";
+    private static final Component GUILD_TAG = Component.text("[Guilde] ", NamedTextColor.GRAY);
+    private static final Component ALLY_TAG = Component.text("[Alliance] ", NamedTextColor.GRAY);
+    private static final Component SPACE = Component.text(" ");
+    private static final Component ARROW = Component.text(" ➤ ", NamedTextColor.WHITE);
+
     private final GuildsPlugin plugin;
+    private final ChatLogAppender chatLog;
 
-    public ChatListeners(GuildsPlugin plugin) {
+    public ChatListeners(GuildsPlugin plugin, ChatLogAppender chatLog) {
         this.plugin = plugin;
+        this.chatLog = chatLog;
     }
 
     @EventHandler
     public void onChat(AsyncChatEvent e) {
         Player player = e.getPlayer();
+        String message = PlainTextComponentSerializer.plainText().serialize(e.message());
+        boolean prefixed = message.startsWith(CHAT_PREFIX);
+
+        if (!plugin.getGuildManager().isLoaded()) {
+            if (prefixed) {
+                player.sendMessage(Lang.ERROR_LOADING.component());
+                e.setCancelled(true);
+            }
+            return;
+        }
+
         Guild guild = plugin.getGuildManager().getGuildByPlayer(player);
         if (guild == null) {
             return;
         }
 
         GuildPlayer guildPlayer = guild.getMember(player.getUniqueId());
-        String message = PlainTextComponentSerializer.plainText().serialize(e.message());
+        ChatMode chatMode = guildPlayer.getChatMode();
 
-        if (guildPlayer.getChatMode() == ChatMode.GUILD && !message.startsWith("!")) {
-            Component guildMessage = Component.text("[Guilde] ", NamedTextColor.GRAY)
-                    .append(guildPlayer.getRank().getDisplayName())
-                    .append(Component.text(" "))
-                    .append(Component.text(player.getName()))
-                    .append(Component.text(" ➤ ", NamedTextColor.WHITE))
-                    .append(e.message());
-
-            guild.sendMessageToOnlineMembers(guildMessage);
-            plugin.getLogger().info("Chat (" + player.getName() + ") : " + message);
-            e.setCancelled(true);
+        if (chatMode == ChatMode.PUBLIC) {
+            if (prefixed) {
+                String msg = message.substring(CHAT_PREFIX.length());
+                guild.sendMessageToOnlineMembers(format(GUILD_TAG, guildPlayer, player, Component.text(msg)));
+                chatLog.append("[Guilde] ", player.getName(), msg);
+                e.setCancelled(true);
+            }
+            return;
         }
 
-        if (guildPlayer.getChatMode() == ChatMode.PUBLIC && message.startsWith("!")) {
-            String msg = message.substring(1);
-            Component guildMessage = Component.text("[Guilde] ", NamedTextColor.GRAY)
-                    .append(guildPlayer.getRank().getDisplayName())
-                    .append(Component.text(" "))
-                    .append(Component.text(player.getName()))
-                    .append(Component.text(" ➤ ", NamedTextColor.WHITE))
-                    .append(Component.text(msg));
-
-            guild.sendMessageToOnlineMembers(guildMessage);
-            plugin.getLogger().info("[Guilde] Chat (" + player.getName() + ") : " + msg);
-            e.setCancelled(true);
+        if (prefixed) {
+            //Message public depuis un canal de guilde ou d'alliance
+            e.message(Component.text(message.substring(CHAT_PREFIX.length())));
+            return;
         }
 
-        if (guildPlayer.getChatMode() == ChatMode.ALLY && !message.startsWith("!")) {
-            Component allyMessage = Component.text("[Alliance] ", NamedTextColor.GRAY)
-                    .append(guildPlayer.getRank().getDisplayName())
-                    .append(Component.text(" "))
-                    .append(Component.text(player.getName()))
-                    .append(Component.text(" ➤ ", NamedTextColor.WHITE))
-                    .append(e.message());
-
-            guild.sendMessageToAllies(allyMessage);
-            plugin.getLogger().info("[Alliance] Chat (" + player.getName() + ") : " + message);
-            e.setCancelled(true);
+        if (chatMode == ChatMode.GUILD) {
+            guild.sendMessageToOnlineMembers(format(GUILD_TAG, guildPlayer, player, e.message()));
+            chatLog.append("", player.getName(), message);
+        } else {
+            guild.sendMessageToAllies(format(ALLY_TAG, guildPlayer, player, e.message()));
+            chatLog.append("[Alliance] ", player.getName(), message);
         }
+        e.setCancelled(true);
+    }
 
-        if (guildPlayer.getChatMode() != ChatMode.PUBLIC && message.startsWith("!")) {
-            String msg = message.substring(1);
-            e.message(Component.text(msg));
-        }
+    private Component format(Component tag, GuildPlayer guildPlayer, Player player, Component message) {
+        return Component.textOfChildren(tag, guildPlayer.getRank().getDisplayName(), SPACE, Component.text(player.getName()), ARROW, message);
     }
-}
\ No newline at end of file
+}
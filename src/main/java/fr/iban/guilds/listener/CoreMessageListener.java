@@ -4,8 +4,11 @@ import com.google.gson.Gson;
 import fr.iban.bukkitcore.event.CoreMessageEvent;
 import fr.iban.common.messaging.Message;
 import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.dto.GuildDelta;
 import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.util.BroadcastMessage;
 import fr.iban.guilds.util.GuildRequestMessage;
+import fr.iban.guilds.util.PresenceMessage;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -27,8 +30,11 @@ public class CoreMessageListener implements Listener {
         String channel = message.getChannel();
 
         switch (channel) {
-            case GuildsPlugin.GUILD_SYNC_CHANNEL -> plugin.getGuildManager().reloadGuildFromDB(UUID.fromString(message.getMessage()));
-            case GuildsPlugin.GUILD_PLAYER_SYNC_CHANNEL -> plugin.getGuildManager().reloadGuildPlayerFromDB(UUID.fromString(message.getMessage()));
+            case GuildsPlugin.GUILD_SYNC_CHANNEL -> plugin.getSyncDebouncer().requestGuildReload(UUID.fromString(message.getMessage()));
+            case GuildsPlugin.GUILD_PLAYER_SYNC_CHANNEL -> plugin.getSyncDebouncer().requestPlayerReload(UUID.fromString(message.getMessage()));
+            case GuildsPlugin.GUILD_DELTA_CHANNEL -> plugin.getSyncDebouncer().handleDelta(gson.fromJson(message.getMessage(), GuildDelta.class));
+            case GuildsPlugin.GUILD_BROADCAST_CHANNEL -> plugin.getMessageBroadcaster().handleBroadcast(gson.fromJson(message.getMessage(), BroadcastMessage.class));
+            case GuildsPlugin.GUILD_PRESENCE_CHANNEL -> plugin.getOnlineTracker().handlePresence(gson.fromJson(message.getMessage(), PresenceMessage.class));
             case GuildsPlugin.GUILD_INVITE_ADD -> consumeAddInviteMessage(message);
             case GuildsPlugin.GUILD_INVITE_REVOKE -> consumeRevokeInviteMessage(message);
             case GuildsPlugin.GUILD_ALLIANCE_REQUEST -> consumeAllianceRequestMessage(message);
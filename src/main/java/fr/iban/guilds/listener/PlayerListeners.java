@@ -0,0 +1,47 @@
+package fr.iban.guilds.listener;
+
+import fr.iban.guilds.manager.BypassCache;
+import fr.iban.guilds.manager.OnlineTracker;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerCommandSendEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.UUID;
+
+public class PlayerListeners implements Listener {
+
+    private final BypassCache bypassCache;
+    private final OnlineTracker onlineTracker;
+
+    public PlayerListeners(BypassCache bypassCache, OnlineTracker onlineTracker) {
+        this.bypassCache = bypassCache;
+        this.onlineTracker = onlineTracker;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onJoin(PlayerJoinEvent e) {
+        UUID uuid = e.getPlayer().getUniqueId();
+        bypassCache.refresh(e.getPlayer());
+        onlineTracker.playerOnline(uuid);
+        onlineTracker.broadcastPresence(uuid, true);
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        UUID uuid = e.getPlayer().getUniqueId();
+        bypassCache.remove(uuid);
+        onlineTracker.playerOffline(uuid);
+        onlineTracker.broadcastPresence(uuid, false);
+    }
+
+    /**
+     * Les plugins de permissions renvoient la liste des commandes au joueur quand ses permissions changent
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onCommandSend(PlayerCommandSendEvent e) {
+        bypassCache.refresh(e.getPlayer());
+    }
+}
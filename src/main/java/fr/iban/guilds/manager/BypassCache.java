@@ -0,0 +1,65 @@
+package fr.iban.guilds.manager;
+
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.model.GuildPlayer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache de la permission guilds.bypass des joueurs connectés, recopié sur leur {@link GuildPlayer}
+ * pour que les vérifications de permission n'interrogent pas le plugin de permissions.
+ */
+public class BypassCache {
+
+    public static final String BYPASS_PERMISSION = "guilds.bypass";
+
+    private final GuildsPlugin plugin;
+    private final Set<UUID> bypassing = ConcurrentHashMap.newKeySet();
+
+    public BypassCache(GuildsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Relit la permission pour tous les joueurs connectés, à intervalle régulier, pour prendre en compte
+     * les changements de permission qui ne déclenchent aucun événement
+     */
+    public void startRefreshTask() {
+        long interval = plugin.getConfiguration().getLong("permissions.bypass-refresh-interval", 30L) * 20L;
+        if (interval <= 0) {
+            return;
+        }
+        plugin.getScheduler().runTimer(() -> Bukkit.getOnlinePlayers().forEach(this::refresh), interval, interval);
+    }
+
+    public void refresh(Player player) {
+        boolean bypass = player.hasPermission(BYPASS_PERMISSION);
+        if (bypass) {
+            bypassing.add(player.getUniqueId());
+        } else {
+            bypassing.remove(player.getUniqueId());
+        }
+
+        GuildPlayer guildPlayer = plugin.getGuildManager().getGuildPlayer(player.getUniqueId());
+        if (guildPlayer != null) {
+            guildPlayer.setBypass(bypass);
+        }
+    }
+
+    public void remove(UUID uuid) {
+        bypassing.remove(uuid);
+
+        GuildPlayer guildPlayer = plugin.getGuildManager().getGuildPlayer(uuid);
+        if (guildPlayer != null) {
+            guildPlayer.setBypass(false);
+        }
+    }
+
+    public boolean isBypassing(UUID uuid) {
+        return bypassing.contains(uuid);
+    }
+}
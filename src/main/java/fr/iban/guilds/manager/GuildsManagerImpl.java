@@ -1,31 +1,89 @@
 package fr.iban.guilds.manager;
 
+import com.google.gson.Gson;
 import fr.iban.bukkitcore.CoreBukkitPlugin;
 import fr.iban.guilds.GuildsPlugin;
 import fr.iban.guilds.api.GuildManager;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.enums.GuildLogCategory;
+import fr.iban.guilds.enums.GuildLogType;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
 import fr.iban.guilds.model.GuildRank;
+import fr.iban.guilds.model.dto.GuildAllianceDTO;
+import fr.iban.guilds.model.dto.GuildChanges;
+import fr.iban.guilds.model.dto.GuildDelta;
+import fr.iban.guilds.model.dto.GuildLogEntry;
+import fr.iban.guilds.model.dto.GuildLogEvent;
+import fr.iban.guilds.model.dto.GuildLogPage;
+import fr.iban.guilds.model.dto.GuildPlayerChanges;
 import fr.iban.guilds.model.dto.GuildPlayerDTO;
+import fr.iban.guilds.model.dto.GuildRankDTO;
+import fr.iban.guilds.model.dto.PendingGuildLog;
+import fr.iban.guilds.model.dto.RecoveryEntry;
 import fr.iban.guilds.storage.SqlStorage;
+import fr.iban.guilds.util.RecoverableTask;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.Nullable;
 
+import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GuildsManagerImpl implements GuildManager {
 
     private final GuildsPlugin plugin;
     private final CoreBukkitPlugin corePlugin;
     private final SqlStorage storage;
-    private final Map<UUID, Guild> guilds = new HashMap<>();
+    private final PersistenceQueue persistenceQueue;
+    private final RecoveryJournal recoveryJournal;
+    private final SyncDebouncer syncDebouncer;
+    private final BypassCache bypassCache;
+    private final OnlineTracker onlineTracker;
+    private final LogWriter logWriter;
+    private final LogRetention logRetention;
+    private final Map<UUID, Guild> guilds = new ConcurrentHashMap<>();
+    private final Map<UUID, Guild> guildsByPlayer = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Guild> guildsByName = new ConcurrentSkipListMap<>();
+    private final CompletableFuture<Void> loadFuture = new CompletableFuture<>();
+    private final List<Runnable> tasksBeforeLoad = new ArrayList<>();
+    private final Gson gson = new Gson();
+    //Nombres de lignes et curseurs de pagination du journal, par guilde. Une écriture ou une suppression décale
+    //les lignes entre les pages : le cache de la guilde est alors remplacé. Il expire aussi après un délai,
+    //pour prendre en compte les lignes écrites ou supprimées par les autres serveurs.
+    private final Map<UUID, LogReadCache> logReadCaches = new ConcurrentHashMap<>();
+    private final long logReadCacheTtlMillis;
+    //Les lectures du journal ne passent pas par les files d'écriture, pour ne pas attendre les sauvegardes
+    private final ExecutorService logReadExecutor = Executors.newSingleThreadExecutor(Thread.ofPlatform().name("Guilds-LogReads").factory());
+
+    private static final int LOG_PAGE_SIZE = 10;
 
     public GuildsManagerImpl(GuildsPlugin plugin) {
         this.plugin = plugin;
-        this.storage = new SqlStorage();
+        this.storage = new SqlStorage(plugin.getConfiguration().getBoolean("persistence.legacy-permissions-json", false));
         this.corePlugin = CoreBukkitPlugin.getInstance();
-        load();
+        this.recoveryJournal = new RecoveryJournal(plugin);
+        this.persistenceQueue = new PersistenceQueue(plugin, this, storage, recoveryJournal);
+        this.syncDebouncer = new SyncDebouncer(plugin, this);
+        this.bypassCache = new BypassCache(plugin);
+        this.onlineTracker = new OnlineTracker(plugin, this);
+        this.logWriter = new LogWriter(plugin, storage, recoveryJournal, this::onLogsWritten);
+        this.logRetention = new LogRetention(plugin, storage, () -> List.copyOf(guilds.keySet()), this::onLogsDeleted);
+        this.logReadCacheTtlMillis = plugin.getConfiguration().getLong("logs.read-cache-ttl", 30L) * 1000L;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return loadFuture.isDone() && !loadFuture.isCompletedExceptionally();
+    }
+
+    @Override
+    public CompletableFuture<Void> getLoadFuture() {
+        return loadFuture;
     }
 
     public Map<UUID, Guild> getGuilds() {
@@ -34,7 +92,7 @@ public class GuildsManagerImpl implements GuildManager {
 
     @Override
     public @Nullable Guild getGuildByPlayerId(UUID uuid) {
-        return guilds.values().stream().filter(guild -> guild.getMember(uuid) != null).findFirst().orElse(null);
+        return guildsByPlayer.get(uuid);
     }
 
     @Override
@@ -44,7 +102,7 @@ public class GuildsManagerImpl implements GuildManager {
 
     @Override
     public @Nullable Guild getGuildByName(String name) {
-        return guilds.values().stream().filter(guild -> guild.getName().equalsIgnoreCase(name)).findFirst().orElse(null);
+        return guildsByName.get(normalizeName(name));
     }
 
     @Override
@@ -63,28 +121,62 @@ public class GuildsManagerImpl implements GuildManager {
         return guilds.values().stream().map(Guild::getName).toList();
     }
 
+    @Override
+    public List<String> getGuildNames(String prefix, int limit) {
+        String from = normalizeName(prefix);
+        List<String> names = new ArrayList<>(Math.min(limit, 16));
+
+        for (Guild guild : guildsByName.tailMap(from, true).values()) {
+            if (names.size() >= limit || !normalizeName(guild.getName()).startsWith(from)) {
+                break;
+            }
+            names.add(guild.getName());
+        }
+
+        return names;
+    }
+
     @Override
     public List<Guild> getOnlineGuilds() {
-        return guilds.values().stream().filter(guild -> !guild.getOnlinePlayers().isEmpty())
-                .sorted(Comparator.comparingInt(Guild::getOnlinePlayerAmount).reversed()).toList();
+        return onlineTracker.getRankedGuilds(0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Guild> getOnlineGuilds(int offset, int limit) {
+        return onlineTracker.getRankedGuilds(offset, limit);
+    }
+
+    @Override
+    public int getOnlineGuildCount() {
+        return onlineTracker.getRankedGuildCount();
+    }
+
+    @Override
+    public void addMember(Guild guild, GuildPlayer guildPlayer) {
+        guildPlayer.setBypass(bypassCache.isBypassing(guildPlayer.getUuid()));
+        guild.addMember(guildPlayer);
+        guildsByPlayer.put(guildPlayer.getUuid(), guild);
+        onlineTracker.onMemberAdded(guild, guildPlayer.getUuid());
+    }
+
+    @Override
+    public void removeMember(Guild guild, UUID uuid) {
+        if (guild.removeMember(uuid) != null) {
+            onlineTracker.update(guild);
+        }
+        guildsByPlayer.remove(uuid, guild);
     }
 
     @Override
     public void saveGuild(Guild guild) {
         guilds.put(guild.getId(), guild);
-
-        plugin.runAsyncQueued(() -> {
-            storage.saveGuild(guild);
-            syncGuild(guild.getId());
-        });
+        indexName(guild);
+        persistenceQueue.enqueue(guild);
     }
 
     @Override
     public void savePlayer(GuildPlayer guildPlayer) {
-        plugin.runAsyncQueued(() -> {
-            storage.saveGuildPlayer(guildPlayer);
-            syncGuildPlayer(guildPlayer.getUuid());
-        });
+        persistenceQueue.enqueue(guildPlayer);
     }
 
     @Override
@@ -92,31 +184,135 @@ public class GuildsManagerImpl implements GuildManager {
         UUID guildID = guild.getId();
 
         guilds.remove(guildID);
+        guildsByName.remove(normalizeName(guild.getName()), guild);
+        guild.getMembers().keySet().forEach(uuid -> guildsByPlayer.remove(uuid, guild));
+        onlineTracker.remove(guildID);
+        logReadCaches.remove(guildID);
+        persistenceQueue.cancelGuild(guildID);
 
-        plugin.runAsyncQueued(() -> {
+        plugin.runAsyncQueued(guildID, new RecoverableTask(() -> {
             storage.deleteGuild(guildID);
             syncGuild(guildID);
-        });
+        }, () -> List.of(RecoveryEntry.deleteGuild(guildID))));
     }
 
     @Override
     public void deletePlayer(GuildPlayer guildPlayer) {
         UUID uuid = guildPlayer.getUuid();
+        persistenceQueue.cancelPlayer(uuid);
 
-        plugin.runAsyncQueued(() -> {
-            storage.deleteGuildPlayer(uuid);
-            syncGuildPlayer(uuid);
-        });
+        UUID guildId = guildPlayer.getGuild().getId();
+        plugin.runAsyncQueued(guildId, new RecoverableTask(() -> {
+            long version = storage.deleteGuildPlayer(guildId, uuid);
+            if (version >= 0) {
+                publishDelta(GuildDelta.memberLeft(guildId, version, uuid));
+            }
+        }, () -> List.of(RecoveryEntry.deletePlayer(guildId, uuid))));
     }
 
     @Override
     public void addLog(Guild guild, String log) {
-        plugin.runAsyncQueued(() -> storage.addLog(guild, log));
+        addLog(guild, GuildLogEvent.text(log));
     }
 
     @Override
-    public CompletableFuture<List<String>> getLogsAsync(Guild guild) {
-        return CompletableFuture.supplyAsync(() -> storage.getLogs(guild.getId()));
+    public void addLog(Guild guild, GuildLogEvent event) {
+        logWriter.append(guild.getId(), event);
+    }
+
+    /**
+     * Les pages lues à la suite sont parcourues depuis la dernière ligne de la page précédente,
+     * les autres par décalage
+     */
+    @Override
+    public CompletableFuture<GuildLogPage> getLogsAsync(Guild guild, int page, @Nullable GuildLogCategory category) {
+        UUID guildId = guild.getId();
+        Set<GuildLogType> types = category == null ? null : category.getTypes();
+        return CompletableFuture.supplyAsync(() -> {
+            LogReadCache cache = getLogReadCache(guildId);
+            Integer cached = cache.counts().get(new LogCountKey(category));
+            int total = cached == null ? countLogs(cache, guildId, category, types) : cached;
+            if (cached != null && (page - 1) * LOG_PAGE_SIZE >= total) {
+                //Le nombre en cache peut ignorer des lignes écrites entre-temps par un autre serveur
+                total = countLogs(cache, guildId, category, types);
+            }
+            if ((page - 1) * LOG_PAGE_SIZE >= total) {
+                return new GuildLogPage(List.of(), total, LOG_PAGE_SIZE);
+            }
+
+            GuildLogEntry after = cache.cursors().get(new LogCursorKey(category, page));
+            List<GuildLogEntry> entries = page == 1 || after != null
+                    ? storage.getLogs(guildId, types, after, LOG_PAGE_SIZE)
+                    : storage.getLogs(guildId, types, (page - 1) * LOG_PAGE_SIZE, LOG_PAGE_SIZE);
+
+            if (entries.size() == LOG_PAGE_SIZE) {
+                cache.cursors().put(new LogCursorKey(category, page + 1), entries.getLast());
+            } else if ((page - 1) * LOG_PAGE_SIZE + entries.size() != total) {
+                //Dernière page incomplète : le nombre en cache ne correspond plus à la table
+                total = countLogs(cache, guildId, category, types);
+            }
+            return new GuildLogPage(entries, total, LOG_PAGE_SIZE);
+        }, logReadExecutor);
+    }
+
+    /**
+     * Le cache d'une guilde est remplacé et non vidé : un nombre lu pendant une écriture est rangé dans l'ancien
+     * cache, et non dans celui qui sert aux lectures suivantes
+     */
+    private LogReadCache getLogReadCache(UUID guildId) {
+        long now = System.currentTimeMillis();
+        logReadCaches.values().removeIf(cache -> cache.expiresAt() <= now);
+        return logReadCaches.computeIfAbsent(guildId, id -> new LogReadCache(now + logReadCacheTtlMillis));
+    }
+
+    private int countLogs(LogReadCache cache, UUID guildId, @Nullable GuildLogCategory category, @Nullable Set<GuildLogType> types) {
+        int count = storage.countLogs(guildId, types);
+        cache.counts().put(new LogCountKey(category), count);
+        return count;
+    }
+
+    private void onLogsWritten(List<PendingGuildLog> logs) {
+        for (PendingGuildLog log : logs) {
+            logReadCaches.remove(log.guildId());
+        }
+    }
+
+    private void onLogsDeleted(List<GuildLogEntry> logs) {
+        for (GuildLogEntry log : logs) {
+            logReadCaches.remove(log.guildId());
+        }
+    }
+
+    public PersistenceQueue getPersistenceQueue() {
+        return persistenceQueue;
+    }
+
+    public RecoveryJournal getRecoveryJournal() {
+        return recoveryJournal;
+    }
+
+    public SyncDebouncer getSyncDebouncer() {
+        return syncDebouncer;
+    }
+
+    public BypassCache getBypassCache() {
+        return bypassCache;
+    }
+
+    public OnlineTracker getOnlineTracker() {
+        return onlineTracker;
+    }
+
+    public LogWriter getLogWriter() {
+        return logWriter;
+    }
+
+    public LogRetention getLogRetention() {
+        return logRetention;
+    }
+
+    public ExecutorService getLogReadExecutor() {
+        return logReadExecutor;
     }
 
     /*
@@ -126,49 +322,254 @@ public class GuildsManagerImpl implements GuildManager {
         corePlugin.getMessagingManager().sendMessage(GuildsPlugin.GUILD_SYNC_CHANNEL, guildID.toString());
     }
 
-    public void syncGuildPlayer(UUID uuid) {
-        corePlugin.getMessagingManager().sendMessage(GuildsPlugin.GUILD_PLAYER_SYNC_CHANNEL, uuid.toString());
+    /**
+     * Envoie aux autres serveurs les modifications qui viennent d'être écrites, une seule fois par guilde.
+     * Les nouvelles guildes sont envoyées en rechargement complet.
+     */
+    void publishChanges(List<GuildChanges> guildChanges, List<GuildPlayerChanges> guildPlayerChanges, Map<UUID, Long> versions) {
+        Map<UUID, GuildChanges> changesByGuild = new HashMap<>();
+        guildChanges.forEach(changes -> changesByGuild.put(changes.guild().getId(), changes));
+
+        Map<UUID, List<GuildPlayerChanges>> playerChangesByGuild = new HashMap<>();
+        guildPlayerChanges.forEach(changes -> playerChangesByGuild
+                .computeIfAbsent(changes.guildPlayer().getGuild().getId(), id -> new ArrayList<>()).add(changes));
+
+        for (Map.Entry<UUID, Long> entry : versions.entrySet()) {
+            UUID guildId = entry.getKey();
+            GuildChanges changes = changesByGuild.get(guildId);
+            Guild guild = changes != null ? changes.guild() : guilds.get(guildId);
+            if (guild == null) {
+                continue;
+            }
+
+            if (changes != null && changes.insert()) {
+                guild.setVersion(entry.getValue());
+                syncGuild(guildId);
+                continue;
+            }
+
+            publishDelta(GuildDelta.of(guild, entry.getValue(), changes, playerChangesByGuild.getOrDefault(guildId, List.of())));
+        }
+    }
+
+    private void publishDelta(GuildDelta delta) {
+        Guild guild = guilds.get(delta.guildId());
+        if (guild != null) {
+            if (guild.getVersion() == delta.version() - 1) {
+                guild.setVersion(delta.version());
+            } else {
+                //Un autre serveur a écrit entre-temps, ses modifications n'ont pas encore été reçues
+                reloadGuildFromDB(delta.guildId());
+            }
+        }
+        corePlugin.getMessagingManager().sendMessage(GuildsPlugin.GUILD_DELTA_CHANNEL, gson.toJson(delta));
+    }
+
+    @Override
+    public void applyDelta(GuildDelta delta) {
+        runAfterLoad(delta.guildId(), () -> {
+            Guild guild = guilds.get(delta.guildId());
+            if (guild == null) {
+                reloadGuild(delta.guildId());
+                return;
+            }
+
+            if (delta.version() <= guild.getVersion()) {
+                //Déjà appliqué, par exemple nos propres écritures
+                return;
+            }
+
+            if (delta.version() != guild.getVersion() + 1) {
+                //Des modifications ont été manquées
+                reloadGuild(delta.guildId());
+                return;
+            }
+
+            String oldName = guild.getName();
+            guild.applyRemote(() -> applyDeltaFields(guild, delta));
+            if (!oldName.equals(guild.getName())) {
+                guildsByName.remove(normalizeName(oldName), guild);
+                indexName(guild);
+            }
+
+            for (GuildPlayerDTO member : delta.members()) {
+                Guild previousGuild = guildsByPlayer.get(member.uuid());
+                if (previousGuild != null && !previousGuild.equals(guild)) {
+                    removeMember(previousGuild, member.uuid());
+                }
+                loadGuildPlayerFromDTO(member);
+            }
+
+            for (UUID uuid : delta.removedMembers()) {
+                removeMember(guild, uuid);
+            }
+
+            guild.setVersion(delta.version());
+        });
+    }
+
+    private void applyDeltaFields(Guild guild, GuildDelta delta) {
+        for (GuildField field : delta.fields()) {
+            switch (field) {
+                case NAME -> guild.setName(delta.name());
+                case BALANCE -> guild.setBalance(delta.balance());
+                case EXP -> guild.setExp(delta.exp());
+                case HOME -> guild.setHome(delta.home());
+                case OWNER -> guild.setOwnerUUID(delta.ownerId());
+            }
+        }
+
+        for (GuildRankDTO rankDTO : delta.ranks()) {
+            GuildRank rank = guild.getRankById(rankDTO.id());
+            if (rank == null) {
+                rank = new GuildRank(rankDTO.id(), rankDTO.name(), rankDTO.order(), new HashSet<>(rankDTO.permissions()));
+                //Un nouveau rang est à sauvegarder par défaut
+                rank.markClean();
+                guild.addRank(rank);
+            } else {
+                rank.setName(rankDTO.name());
+                rank.setPermissions(new HashSet<>(rankDTO.permissions()));
+            }
+            rank.setOrder(rankDTO.order());
+        }
+
+        for (GuildRank rank : guild.getRanks()) {
+            if (delta.removedRankIds().contains(rank.getId())) {
+                guild.removeRank(rank);
+            }
+        }
+        guild.sortRanks();
+
+        for (UUID allyId : delta.addedAllianceIds()) {
+            Guild ally = guilds.get(allyId);
+            if (ally != null) {
+                guild.addAlliance(ally);
+            }
+        }
+
+        for (UUID allyId : delta.removedAllianceIds()) {
+            Guild ally = guilds.get(allyId);
+            if (ally != null) {
+                guild.removeAlliance(ally);
+            }
+        }
     }
 
     @Override
     public void reloadGuildFromDB(UUID guildId) {
-        plugin.runAsyncQueued(() -> {
-            Guild oldGuild = guilds.get(guildId);
-            Guild newGuild = storage.getGuild(guildId);
+        reloadGuildFromDB(guildId, () -> {});
+    }
 
-            if (oldGuild != null && newGuild == null) {
+    /**
+     * @param onStart Exécuté sur la file de stockage juste avant la lecture de la guilde
+     */
+    void reloadGuildFromDB(UUID guildId, Runnable onStart) {
+        runAfterLoad(guildId, () -> {
+            onStart.run();
+            reloadGuild(guildId);
+        });
+    }
+
+    /**
+     * Relit une guilde et la publie en une seule étape : la nouvelle instance est entièrement construite
+     * (rangs, membres, alliances) avant de remplacer l'ancienne, pour que les lecteurs ne voient jamais
+     * une guilde partiellement chargée.
+     */
+    private void reloadGuild(UUID guildId) {
+        logReadCaches.remove(guildId);
+        Guild oldGuild = guilds.get(guildId);
+        Guild newGuild = storage.getGuild(guildId);
+
+        if (newGuild == null) {
+            if (oldGuild != null) {
                 //Suppression d'une guilde
                 guilds.remove(guildId);
-            } else {
-                //Ajout ou maj à jour de la guilde
-                guilds.put(guildId, newGuild);
-                for (GuildPlayerDTO guildPlayerDTO : storage.getGuildPlayerDTOs(guildId)) {
-                    loadGuildPlayerFromDTO(guildPlayerDTO);
+                guildsByName.remove(normalizeName(oldGuild.getName()), oldGuild);
+                oldGuild.getMembers().keySet().forEach(uuid -> guildsByPlayer.remove(uuid, oldGuild));
+                onlineTracker.remove(guildId);
+                oldGuild.getAlliances().forEach(ally -> ally.applyRemote(() -> ally.removeAlliance(oldGuild)));
+            }
+            return;
+        }
+
+        //Construction de la nouvelle instance hors des index
+        for (GuildPlayerDTO guildPlayerDTO : storage.getGuildPlayerDTOs(guildId)) {
+            GuildPlayer guildPlayer = new GuildPlayer(guildPlayerDTO.uuid(), newGuild, newGuild.getRank(guildPlayerDTO.rank()), guildPlayerDTO.chatMode());
+            guildPlayer.markClean();
+            guildPlayer.setBypass(bypassCache.isBypassing(guildPlayer.getUuid()));
+            newGuild.addMember(guildPlayer);
+        }
+
+        for (UUID uuid : storage.getAlliances(newGuild)) {
+            Guild alliance = guilds.get(uuid);
+            if (alliance != null) {
+                newGuild.addAlliance(alliance);
+            }
+        }
+        newGuild.markClean();
+
+        if (oldGuild != null) {
+            //Les invitations ne sont pas stockées en base
+            newGuild.getInvites().addAll(oldGuild.getInvites());
+            newGuild.getAllianceInvites().addAll(oldGuild.getAllianceInvites());
+        }
+
+        //Publication
+        guilds.put(guildId, newGuild);
+
+        if (oldGuild != null) {
+            guildsByName.remove(normalizeName(oldGuild.getName()), oldGuild);
+        }
+        indexName(newGuild);
+
+        newGuild.getMembers().keySet().forEach(uuid -> guildsByPlayer.put(uuid, newGuild));
+        onlineTracker.refresh(newGuild);
+        if (oldGuild != null) {
+            //Membres qui ne font plus partie de la guilde
+            for (UUID uuid : oldGuild.getMembers().keySet()) {
+                if (newGuild.getMember(uuid) == null) {
+                    guildsByPlayer.remove(uuid, oldGuild);
                 }
+            }
 
-                for (UUID uuid : storage.getAlliances(newGuild)) {
-                    Guild alliance = guilds.get(uuid);
-                    if (alliance != null) {
-                        newGuild.getAlliances().add(alliance);
-                    }
+            //Les alliés ne doivent plus référencer l'ancienne instance
+            for (Guild ally : oldGuild.getAlliances()) {
+                if (!newGuild.getAlliances().contains(ally)) {
+                    ally.applyRemote(() -> ally.removeAlliance(oldGuild));
                 }
             }
-        });
+        }
+
+        for (Guild ally : newGuild.getAlliances()) {
+            ally.replaceAlliance(newGuild);
+        }
     }
 
     @Override
     public void reloadGuildPlayerFromDB(UUID uuid) {
-        plugin.runAsyncQueued(() -> {
+        reloadGuildPlayerFromDB(uuid, () -> {});
+    }
+
+    /**
+     * @param onStart Exécuté sur la file de stockage juste avant la lecture du joueur
+     */
+    void reloadGuildPlayerFromDB(UUID uuid, Runnable onStart) {
+        Guild currentGuild = getGuildByPlayerId(uuid);
+        runAfterLoad(currentGuild == null ? uuid : currentGuild.getId(), () -> {
+            onStart.run();
             GuildPlayer oldGuildPlayer = getGuildPlayer(uuid);
 
             GuildPlayerDTO updatedGuildPlayerDTO = storage.getGuildPlayerDto(uuid);
-            if (oldGuildPlayer != null && updatedGuildPlayerDTO == null) {
+            if (oldGuildPlayer != null && (updatedGuildPlayerDTO == null
+                    || !updatedGuildPlayerDTO.guildId().equals(oldGuildPlayer.getGuild().getId()))) {
                 //Le joueur a quitté la guilde
                 Guild guild = getGuildById(oldGuildPlayer.getGuild().getId());
                 if (guild != null) {
-                    guild.getMembers().remove(uuid);
+                    removeMember(guild, uuid);
                 }
-            } else {
+            }
+
+            if (updatedGuildPlayerDTO != null) {
                 loadGuildPlayerFromDTO(updatedGuildPlayerDTO);
             }
         });
@@ -178,37 +579,108 @@ public class GuildsManagerImpl implements GuildManager {
     LOAD
      */
 
-    private void loadGuilds() {
-        long start = System.currentTimeMillis();
-        for (Guild guild : storage.getGuilds()) {
-            guilds.put(guild.getId(), guild);
-        }
+    /**
+     * Charge les guildes sur un thread de stockage, sans bloquer le thread principal.
+     * Les tâches de synchronisation reçues entre-temps sont exécutées après le chargement.
+     */
+    public CompletableFuture<Void> loadAsync() {
+        plugin.runAsyncQueued(() -> {
+            try {
+                storage.init();
+                load();
+                recoveryJournal.replay(this);
+                completeLoad(null);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Impossible de charger les guildes : " + e.getMessage());
+                e.printStackTrace();
+                completeLoad(e);
+            }
+        });
+        return loadFuture;
+    }
 
-        for (Guild guild : guilds.values()) {
-            for (UUID uuid : storage.getAlliances(guild)) {
-                Guild alliance = guilds.get(uuid);
-                if (alliance != null) {
-                    guild.getAlliances().add(alliance);
-                }
+    private void completeLoad(@Nullable Throwable error) {
+        List<Runnable> pending;
+        synchronized (tasksBeforeLoad) {
+            if (error == null) {
+                loadFuture.complete(null);
+            } else {
+                loadFuture.completeExceptionally(error);
             }
+            pending = new ArrayList<>(tasksBeforeLoad);
+            tasksBeforeLoad.clear();
+        }
+        if (error == null) {
+            pending.forEach(Runnable::run);
         }
+    }
 
-        plugin.getLogger().info(guilds.size() + " guildes chargées en " + (System.currentTimeMillis() - start) + "ms.");
+    /**
+     * Exécute la tâche sur la file de la clé, en la différant jusqu'à la fin du chargement si besoin
+     */
+    private void runAfterLoad(UUID key, Runnable task) {
+        synchronized (tasksBeforeLoad) {
+            if (!loadFuture.isDone()) {
+                tasksBeforeLoad.add(() -> plugin.runAsyncQueued(key, task));
+                return;
+            }
+        }
+        plugin.runAsyncQueued(key, task);
     }
 
-    private void loadGuildPlayers() {
+    private void load() throws SQLException {
+        guilds.clear();
+        guildsByPlayer.clear();
+        guildsByName.clear();
+
         long start = System.currentTimeMillis();
-        List<GuildPlayerDTO> guildPlayers = storage.getGuildPlayerDTOs();
-        for (GuildPlayerDTO guildPlayerDTO : guildPlayers) {
+        List<Guild> loadedGuilds = storage.getGuilds();
+        long guildsTime = System.currentTimeMillis();
+        Map<UUID, List<GuildRank>> ranks = storage.getGuildRanks();
+        long ranksTime = System.currentTimeMillis();
+        List<GuildPlayerDTO> members = storage.getGuildPlayerDTOs();
+        long membersTime = System.currentTimeMillis();
+        List<GuildAllianceDTO> alliances = storage.getAlliances();
+        long alliancesTime = System.currentTimeMillis();
+
+        for (Guild guild : loadedGuilds) {
+            guild.setRanks(ranks.getOrDefault(guild.getId(), new ArrayList<>()));
+            guilds.put(guild.getId(), guild);
+            indexName(guild);
+        }
+
+        for (GuildPlayerDTO guildPlayerDTO : members) {
             loadGuildPlayerFromDTO(guildPlayerDTO);
         }
-        plugin.getLogger().info(guildPlayers.size() + " joueurs de guilde chargées en " + (System.currentTimeMillis() - start) + "ms.");
+
+        for (GuildAllianceDTO alliance : alliances) {
+            Guild guildA = guilds.get(alliance.guildAId());
+            Guild guildB = guilds.get(alliance.guildBId());
+            if (guildA == null || guildB == null) {
+                continue;
+            }
+
+            guildA.addAlliance(guildB);
+            guildB.addAlliance(guildA);
+        }
+
+        guilds.values().forEach(Guild::markClean);
+
+        long end = System.currentTimeMillis();
+        plugin.getLogger().info(guilds.size() + " guildes et " + members.size() + " joueurs de guilde chargés en " + (end - start) + "ms"
+                + " (guildes: " + (guildsTime - start) + "ms"
+                + ", rangs: " + (ranksTime - guildsTime) + "ms"
+                + ", membres: " + (membersTime - ranksTime) + "ms"
+                + ", alliances: " + (alliancesTime - membersTime) + "ms"
+                + ", assemblage: " + (end - alliancesTime) + "ms).");
     }
 
-    public void load() {
-        guilds.clear();
-        loadGuilds();
-        loadGuildPlayers();
+    private void indexName(Guild guild) {
+        guildsByName.put(normalizeName(guild.getName()), guild);
+    }
+
+    private static String normalizeName(String name) {
+        return name.toLowerCase(Locale.ROOT);
     }
 
     private void loadGuildPlayerFromDTO(GuildPlayerDTO dto) {
@@ -220,7 +692,53 @@ public class GuildsManagerImpl implements GuildManager {
 
         GuildRank rank = guild.getRank(dto.rank());
         GuildPlayer guildPlayer = new GuildPlayer(dto.uuid(), guild, rank, dto.chatMode());
+        guildPlayer.markClean();
 
-        guild.getMembers().put(dto.uuid(), guildPlayer);
+        addMember(guild, guildPlayer);
+    }
+
+    /**
+     * Vérifie que l'index joueur → guilde correspond exactement aux membres des guildes chargées.
+     * @return La liste des incohérences trouvées, vide si l'index est cohérent
+     */
+    public List<String> checkPlayerIndexConsistency() {
+        return checkPlayerIndexConsistency(guilds, guildsByPlayer);
+    }
+
+    static List<String> checkPlayerIndexConsistency(Map<UUID, Guild> guilds, Map<UUID, Guild> guildsByPlayer) {
+        List<String> errors = new ArrayList<>();
+
+        for (Guild guild : guilds.values()) {
+            for (UUID uuid : guild.getMembers().keySet()) {
+                Guild indexed = guildsByPlayer.get(uuid);
+                if (indexed != guild) {
+                    errors.add("Member " + uuid + " of guild " + guild.getId() + " is indexed to "
+                            + (indexed == null ? "nothing" : indexed.getId()));
+                }
+            }
+        }
+
+        guildsByPlayer.forEach((uuid, guild) -> {
+            if (guilds.get(guild.getId()) != guild) {
+                errors.add("Player " + uuid + " is indexed to unloaded guild " + guild.getId());
+            } else if (guild.getMember(uuid) == null) {
+                errors.add("Player " + uuid + " is indexed to guild " + guild.getId() + " but is not a member");
+            }
+        });
+
+        return errors;
+    }
+
+    private record LogCursorKey(@Nullable GuildLogCategory category, int page) {
+    }
+
+    private record LogCountKey(@Nullable GuildLogCategory category) {
+    }
+
+    private record LogReadCache(long expiresAt, Map<LogCountKey, Integer> counts, Map<LogCursorKey, GuildLogEntry> cursors) {
+
+        LogReadCache(long expiresAt) {
+            this(expiresAt, new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
     }
 }
\ No newline at end of file
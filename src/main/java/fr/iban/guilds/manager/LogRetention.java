@@ -0,0 +1,228 @@
+package fr.iban.guilds.manager;
+
+import com.google.gson.Gson;
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.model.dto.GuildLogEntry;
+import fr.iban.guilds.model.dto.GuildLogEvent;
+import fr.iban.guilds.storage.SqlStorage;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Tâche de rétention du journal des guildes : supprime les lignes plus anciennes que l'âge configuré
+ * et celles qui dépassent le nombre maximal de lignes par guilde. Les suppressions sont faites par petits
+ * lots espacés pour ne pas bloquer la table, et les lignes peuvent être archivées avant d'être supprimées.
+ * La tâche tourne sur chaque serveur mais un seul serveur à la fois l'exécute, grâce à un verrou de la base.
+ */
+public class LogRetention {
+
+    private static final DateTimeFormatter ARCHIVE_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String LOCK_NAME = "guilds_logs_retention";
+
+    private final GuildsPlugin plugin;
+    private final SqlStorage storage;
+    private final Supplier<Collection<UUID>> guildIds;
+    private final Consumer<List<GuildLogEntry>> onDeleted;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Gson gson = new Gson();
+
+    private final long maxAgeDays;
+    private final int maxPerGuild;
+    private final int chunkSize;
+    private final long chunkPauseMillis;
+    private final boolean archive;
+
+    /**
+     * @param guildIds  Guildes dont le nombre de lignes est à limiter
+     * @param onDeleted Appelé avec les lignes qui viennent d'être supprimées
+     */
+    public LogRetention(GuildsPlugin plugin, SqlStorage storage, Supplier<Collection<UUID>> guildIds, Consumer<List<GuildLogEntry>> onDeleted) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.guildIds = guildIds;
+        this.onDeleted = onDeleted;
+        this.maxAgeDays = plugin.getConfiguration().getLong("logs.retention.max-age-days", 0L);
+        this.maxPerGuild = plugin.getConfiguration().getInt("logs.retention.max-per-guild", 0);
+        this.chunkSize = Math.max(1, plugin.getConfiguration().getInt("logs.retention.chunk-size", 500));
+        this.chunkPauseMillis = plugin.getConfiguration().getLong("logs.retention.chunk-pause", 200L);
+        this.archive = plugin.getConfiguration().getBoolean("logs.retention.archive", false);
+    }
+
+    public void start() {
+        long interval = plugin.getConfiguration().getLong("logs.retention.interval", 60L) * 60L * 20L;
+        if (interval <= 0 || (maxAgeDays <= 0 && maxPerGuild <= 0)) {
+            return;
+        }
+        plugin.getScheduler().runTimerAsync(this::run, interval, interval);
+    }
+
+    /**
+     * Applique la rétention, sauf si une exécution précédente n'est pas terminée sur ce serveur ou sur un autre
+     */
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            storage.runExclusive(LOCK_NAME, this::retain);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Rétention du journal des guildes interrompue : " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void retain() {
+        try (Archive archiveFile = archive ? new Archive() : null) {
+            int deleted = 0;
+            if (maxAgeDays > 0) {
+                deleted += trimByAge(archiveFile);
+            }
+            if (maxPerGuild > 0) {
+                deleted += trimByCap(archiveFile);
+            }
+
+            if (deleted > 0) {
+                plugin.getLogger().info(deleted + " lignes de journal de guilde supprimées par la rétention"
+                        + (archiveFile != null ? ", archivées dans " + archiveFile.file.getName() + "." : "."));
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Rétention du journal des guildes interrompue : " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private int trimByAge(Archive archiveFile) throws IOException {
+        LocalDateTime before = LocalDateTime.now().minusDays(maxAgeDays);
+        int deleted = 0;
+
+        List<GuildLogEntry> chunk;
+        while (plugin.isEnabled() && !(chunk = storage.getLogsBefore(before, chunkSize)).isEmpty()) {
+            int count = delete(chunk, archiveFile);
+            if (count <= 0) {
+                break;
+            }
+            deleted += count;
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            pause();
+        }
+        return deleted;
+    }
+
+    /**
+     * Chaque guilde est sondée par l'index (guild_id, createdAt, id) : seules les lignes conservées sont parcourues,
+     * et non tout l'historique de la table
+     */
+    private int trimByCap(Archive archiveFile) throws IOException {
+        int deleted = 0;
+
+        for (UUID guildId : guildIds.get()) {
+            if (!plugin.isEnabled()) {
+                break;
+            }
+            //Plus récente ligne à supprimer : celle qui suit les lignes conservées, absente sous la limite
+            List<GuildLogEntry> firstRemoved = storage.getLogs(guildId, null, maxPerGuild, 1);
+            if (firstRemoved.isEmpty()) {
+                continue;
+            }
+
+            List<GuildLogEntry> chunk;
+            while (plugin.isEnabled() && !(chunk = storage.getLogsUpTo(guildId, firstRemoved.getFirst(), chunkSize)).isEmpty()) {
+                int count = delete(chunk, archiveFile);
+                if (count <= 0) {
+                    return deleted;
+                }
+                deleted += count;
+                pause();
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private int delete(List<GuildLogEntry> chunk, Archive archiveFile) throws IOException {
+        //Les lignes ne sont supprimées qu'une fois archivées
+        if (archiveFile != null) {
+            archiveFile.write(chunk);
+        }
+
+        int count = storage.deleteLogs(chunk);
+        if (count > 0) {
+            onDeleted.accept(chunk);
+        }
+        return count;
+    }
+
+    private void pause() {
+        if (chunkPauseMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Fichier d'archive compressé d'une exécution, une ligne JSON par ligne de journal, créé à la première écriture
+     */
+    private class Archive implements AutoCloseable {
+
+        private final File file;
+        private BufferedWriter writer;
+
+        private Archive() {
+            File folder = new File(plugin.getDataFolder(), "logs-archive");
+            this.file = new File(folder, "guilds_logs-" + ARCHIVE_NAME_FORMAT.format(LocalDateTime.now()) + ".jsonl.gz");
+        }
+
+        private void write(List<GuildLogEntry> logs) throws IOException {
+            if (writer == null) {
+                Files.createDirectories(file.getParentFile().toPath());
+                writer = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(Files.newOutputStream(file.toPath()), true), StandardCharsets.UTF_8));
+            }
+
+            for (GuildLogEntry log : logs) {
+                writer.write(gson.toJson(new ArchivedLog(log.id(), log.guildId(), log.createdAt().toString(), log.event(), log.render())));
+                writer.newLine();
+            }
+            //Les lignes doivent être écrites avant leur suppression
+            writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * L'événement est archivé tel quel, le texte mis en forme est ajouté pour une lecture directe
+     */
+    private record ArchivedLog(int id, UUID guildId, String createdAt, GuildLogEvent event, String log) {}
+}
@@ -0,0 +1,236 @@
+package fr.iban.guilds.manager;
+
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.model.dto.GuildLogEvent;
+import fr.iban.guilds.model.dto.PendingGuildLog;
+import fr.iban.guilds.model.dto.RecoveryEntry;
+import fr.iban.guilds.storage.SqlStorage;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Écriture des journaux de guilde sur un thread dédié : les lignes sont mises en tampon dans une file bornée
+ * puis insérées par lot, quand le lot est plein ou à intervalle régulier. Si la file est pleine, les
+ * nouvelles lignes sont abandonnées et comptées.
+ * Les lignes d'une guilde dont la création n'est pas encore écrite en base sont réessayées aux écritures
+ * suivantes, puis abandonnées et comptées après le nombre de tentatives configuré.
+ */
+public class LogWriter {
+
+    private final GuildsPlugin plugin;
+    private final SqlStorage storage;
+    private final RecoveryJournal recoveryJournal;
+    private final Consumer<List<PendingGuildLog>> onWritten;
+    private final BlockingQueue<PendingGuildLog> buffer;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Queue<WaitingLog> waiting = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong orphaned = new AtomicLong();
+
+    /**
+     * @param onWritten Appelé avec les lignes qui viennent d'être écrites
+     */
+    public LogWriter(GuildsPlugin plugin, SqlStorage storage, RecoveryJournal recoveryJournal, Consumer<List<PendingGuildLog>> onWritten) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.recoveryJournal = recoveryJournal;
+        this.onWritten = onWritten;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, plugin.getConfiguration().getInt("logs.buffer-size", 10000)));
+        this.batchSize = Math.max(1, plugin.getConfiguration().getInt("logs.batch-size", 200));
+        this.maxAttempts = Math.max(1, plugin.getConfiguration().getInt("logs.max-attempts", 5));
+        this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("Guilds-Logs").factory());
+
+        long interval = Math.max(1L, plugin.getConfiguration().getLong("logs.flush-interval", 2000L));
+        executor.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void append(UUID guildId, GuildLogEvent event) {
+        append(new PendingGuildLog(guildId, event, LocalDateTime.now()));
+    }
+
+    /**
+     * Ajoute une ligne en gardant sa date d'origine, pour les lignes rejouées depuis le fichier de reprise
+     */
+    public void append(PendingGuildLog log) {
+        if (closed) {
+            recoveryJournal.append(List.of(RecoveryEntry.log(log)));
+            return;
+        }
+
+        if (!buffer.offer(log)) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        if (buffer.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::flush);
+            } catch (RejectedExecutionException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * Écrit toutes les lignes en attente, par lots
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+
+        List<WaitingLog> batch = new ArrayList<>(batchSize);
+        int retries = waiting.size();
+        for (int i = 0; i < retries; i++) {
+            batch.add(waiting.poll());
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        List<PendingGuildLog> logs = new ArrayList<>(batchSize);
+        while (buffer.drainTo(logs, batchSize - batch.size()) > 0) {
+            logs.forEach(log -> batch.add(new WaitingLog(log, 0)));
+            logs.clear();
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void write(List<WaitingLog> batch) {
+        List<PendingGuildLog> logs = batch.stream().map(WaitingLog::log).toList();
+        List<PendingGuildLog> missingGuild = storage.addLogs(logs);
+        if (missingGuild == null) {
+            failed.addAndGet(logs.size());
+            journal(logs);
+            return;
+        }
+
+        Set<PendingGuildLog> rejected = Collections.newSetFromMap(new IdentityHashMap<>());
+        rejected.addAll(missingGuild);
+
+        List<PendingGuildLog> writtenLogs = new ArrayList<>(logs.size());
+        int orphans = 0;
+        for (WaitingLog waitingLog : batch) {
+            PendingGuildLog log = waitingLog.log();
+            if (!rejected.contains(log)) {
+                writtenLogs.add(log);
+            } else if (waitingLog.attempts() + 1 < maxAttempts) {
+                waiting.add(new WaitingLog(log, waitingLog.attempts() + 1));
+            } else {
+                orphans++;
+            }
+        }
+
+        if (orphans > 0) {
+            orphaned.addAndGet(orphans);
+            plugin.getLogger().warning(orphans + " lignes de journal abandonnées : leur guilde n'existe pas en base.");
+        }
+
+        written.addAndGet(writtenLogs.size());
+        batches.incrementAndGet();
+        if (!writtenLogs.isEmpty()) {
+            onWritten.accept(writtenLogs);
+        }
+    }
+
+    private void journal(List<PendingGuildLog> logs) {
+        recoveryJournal.append(logs.stream().map(RecoveryEntry::log).toList());
+    }
+
+    /**
+     * Écrit ce qui reste dans le tampon sur le thread d'écriture puis l'arrête. Les lignes qui n'ont pas
+     * été écrites avant le délai sont conservées dans le fichier de reprise.
+     */
+    public void close(long timeout, TimeUnit unit) {
+        closed = true;
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException ignored) {
+        }
+        executor.shutdown();
+
+        boolean terminated;
+        try {
+            terminated = executor.awaitTermination(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            terminated = false;
+        }
+
+        if (!terminated) {
+            executor.shutdownNow();
+        }
+
+        List<PendingGuildLog> remaining = new ArrayList<>();
+        WaitingLog waitingLog;
+        while ((waitingLog = waiting.poll()) != null) {
+            remaining.add(waitingLog.log());
+        }
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            failed.addAndGet(remaining.size());
+            journal(remaining);
+        }
+    }
+
+    public int getBuffered() {
+        return buffer.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getOrphaned() {
+        return orphaned.get();
+    }
+
+    public int getWaiting() {
+        return waiting.size();
+    }
+
+    private record WaitingLog(PendingGuildLog log, int attempts) {}
+}
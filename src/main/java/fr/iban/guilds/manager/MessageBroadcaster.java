@@ -0,0 +1,101 @@
+package fr.iban.guilds.manager;
+
+import com.google.gson.Gson;
+import fr.iban.bukkitcore.CoreBukkitPlugin;
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.util.BroadcastMessage;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envoi d'un message à un ensemble de joueurs connectés : les joueurs de ce serveur le reçoivent directement,
+ * les autres sont regroupés dans un seul message inter-serveurs que chaque serveur distribue à ses joueurs.
+ */
+public class MessageBroadcaster {
+
+    private final Gson gson = new Gson();
+
+    private final AtomicLong broadcasts = new AtomicLong();
+    private final AtomicLong recipients = new AtomicLong();
+    private final AtomicLong localRecipients = new AtomicLong();
+    private final AtomicLong remoteMessages = new AtomicLong();
+    private final AtomicInteger maxRecipients = new AtomicInteger();
+
+    public void broadcast(Collection<UUID> targets, Component message) {
+        List<UUID> remote = new ArrayList<>();
+        int local = 0;
+
+        for (UUID uuid : targets) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null) {
+                player.sendMessage(message);
+                local++;
+            } else {
+                remote.add(uuid);
+            }
+        }
+
+        if (!remote.isEmpty()) {
+            CoreBukkitPlugin.getInstance().getMessagingManager().sendMessage(GuildsPlugin.GUILD_BROADCAST_CHANNEL,
+                    gson.toJson(new BroadcastMessage(remote, GsonComponentSerializer.gson().serialize(message))));
+            remoteMessages.incrementAndGet();
+        }
+
+        int total = local + remote.size();
+        broadcasts.incrementAndGet();
+        recipients.addAndGet(total);
+        localRecipients.addAndGet(local);
+        maxRecipients.accumulateAndGet(total, Math::max);
+    }
+
+    /**
+     * Distribue aux joueurs de ce serveur un message envoyé par un autre serveur
+     */
+    public void handleBroadcast(BroadcastMessage broadcastMessage) {
+        Component message = null;
+        for (UUID uuid : broadcastMessage.recipients()) {
+            Player player = Bukkit.getPlayer(uuid);
+            if (player == null) {
+                continue;
+            }
+            if (message == null) {
+                message = GsonComponentSerializer.gson().deserialize(broadcastMessage.component());
+            }
+            player.sendMessage(message);
+        }
+    }
+
+    public long getBroadcasts() {
+        return broadcasts.get();
+    }
+
+    public long getRecipients() {
+        return recipients.get();
+    }
+
+    public long getLocalRecipients() {
+        return localRecipients.get();
+    }
+
+    public long getRemoteMessages() {
+        return remoteMessages.get();
+    }
+
+    public int getMaxRecipients() {
+        return maxRecipients.get();
+    }
+
+    public double getAverageRecipients() {
+        long count = broadcasts.get();
+        return count == 0 ? 0 : (double) recipients.get() / count;
+    }
+}
@@ -0,0 +1,196 @@
+package fr.iban.guilds.manager;
+
+import com.google.gson.Gson;
+import fr.iban.bukkitcore.CoreBukkitPlugin;
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.util.PresenceMessage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Membres connectés de chaque guilde et classement des guildes par nombre de membres connectés.
+ * Tenu à jour par les connexions et déconnexions, locales ou annoncées par les autres serveurs,
+ * puis resynchronisé régulièrement avec la liste des joueurs connectés au réseau.
+ * Les pages du classement sont lues dans une copie indexée, reconstruite à chaque resynchronisation.
+ */
+public class OnlineTracker {
+
+    private static final Comparator<RankingEntry> RANKING_ORDER = Comparator.comparingInt(RankingEntry::online).reversed()
+            .thenComparing(RankingEntry::guildId);
+
+    private final GuildsPlugin plugin;
+    private final GuildsManagerImpl guildsManager;
+    private final NavigableSet<RankingEntry> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+    private final Map<UUID, RankingEntry> rankingEntries = new ConcurrentHashMap<>();
+    private volatile List<RankingEntry> rankingSnapshot = List.of();
+    //Sans resynchronisation régulière, la copie est reconstruite à la lecture après une modification
+    private volatile boolean rebuildOnRead = true;
+    private volatile boolean rankingChanged;
+    private final Gson gson = new Gson();
+
+    public OnlineTracker(GuildsPlugin plugin, GuildsManagerImpl guildsManager) {
+        this.plugin = plugin;
+        this.guildsManager = guildsManager;
+    }
+
+    /**
+     * Resynchronise régulièrement les membres connectés avec la liste du réseau, pour corriger
+     * les annonces perdues ou reçues dans le désordre lors d'un changement de serveur
+     */
+    public void startReconcileTask() {
+        long interval = plugin.getConfiguration().getLong("online.reconcile-interval", 10L) * 20L;
+        if (interval <= 0) {
+            return;
+        }
+        rebuildOnRead = false;
+        plugin.getScheduler().runTimer(this::reconcile, interval, interval);
+    }
+
+    public void playerOnline(UUID uuid) {
+        Guild guild = guildsManager.getGuildByPlayerId(uuid);
+        if (guild != null && guild.setOnline(uuid, true)) {
+            update(guild);
+        }
+    }
+
+    public void playerOffline(UUID uuid) {
+        Guild guild = guildsManager.getGuildByPlayerId(uuid);
+        if (guild != null && guild.setOnline(uuid, false)) {
+            update(guild);
+        }
+    }
+
+    /**
+     * Annonce la connexion ou la déconnexion d'un joueur de ce serveur aux autres serveurs
+     */
+    public void broadcastPresence(UUID uuid, boolean online) {
+        CoreBukkitPlugin.getInstance().getMessagingManager().sendMessage(GuildsPlugin.GUILD_PRESENCE_CHANNEL,
+                gson.toJson(new PresenceMessage(uuid, online)));
+    }
+
+    public void handlePresence(PresenceMessage message) {
+        if (message.online()) {
+            playerOnline(message.playerID());
+        } else {
+            playerOffline(message.playerID());
+        }
+    }
+
+    public void onMemberAdded(Guild guild, UUID uuid) {
+        if (isOnlineOnNetwork(uuid) && guild.setOnline(uuid, true)) {
+            update(guild);
+        }
+    }
+
+    /**
+     * Recalcule les membres connectés d'une guilde, après son rechargement
+     */
+    public void refresh(Guild guild) {
+        for (UUID uuid : guild.getMembers().keySet()) {
+            guild.setOnline(uuid, isOnlineOnNetwork(uuid));
+        }
+        update(guild);
+    }
+
+    /**
+     * Recalcule les membres connectés de toutes les guildes en un seul parcours des joueurs du réseau
+     */
+    public void reconcile() {
+        Map<Guild, Set<UUID>> onlineByGuild = new HashMap<>();
+        for (UUID uuid : CoreBukkitPlugin.getInstance().getPlayerManager().getOnlinePlayers().keySet()) {
+            Guild guild = guildsManager.getGuildByPlayerId(uuid);
+            if (guild != null) {
+                onlineByGuild.computeIfAbsent(guild, g -> new HashSet<>()).add(uuid);
+            }
+        }
+
+        for (Guild guild : guildsManager.getGuilds().values()) {
+            guild.setOnlineMembers(onlineByGuild.getOrDefault(guild, Set.of()));
+            update(guild);
+        }
+
+        for (UUID guildId : rankingEntries.keySet()) {
+            if (guildsManager.getGuildById(guildId) == null) {
+                remove(guildId);
+            }
+        }
+        rebuildSnapshot();
+    }
+
+    private synchronized void rebuildSnapshot() {
+        rankingChanged = false;
+        rankingSnapshot = List.copyOf(ranking);
+    }
+
+    /**
+     * Replace la guilde dans le classement selon son nombre de membres connectés
+     */
+    public synchronized void update(Guild guild) {
+        int online = guild.getOnlinePlayerAmount();
+        RankingEntry previous = rankingEntries.get(guild.getId());
+        if (previous != null && previous.online() == online) {
+            return;
+        }
+
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+
+        if (online > 0) {
+            RankingEntry entry = new RankingEntry(guild.getId(), online);
+            ranking.add(entry);
+            rankingEntries.put(guild.getId(), entry);
+        } else {
+            rankingEntries.remove(guild.getId());
+        }
+        rankingChanged = true;
+    }
+
+    public synchronized void remove(UUID guildId) {
+        RankingEntry previous = rankingEntries.remove(guildId);
+        if (previous != null) {
+            ranking.remove(previous);
+            rankingChanged = true;
+        }
+    }
+
+    /**
+     * Le classement lu peut avoir jusqu'à un intervalle de resynchronisation de retard
+     * @return Les guildes ayant des membres connectés, de la plus à la moins peuplée
+     */
+    public List<Guild> getRankedGuilds(int offset, int limit) {
+        List<RankingEntry> snapshot = getRankingSnapshot();
+        if (offset >= snapshot.size()) {
+            return List.of();
+        }
+
+        List<Guild> page = new ArrayList<>(Math.min(limit, 16));
+        for (RankingEntry entry : snapshot.subList(offset, (int) Math.min(snapshot.size(), (long) offset + limit))) {
+            Guild guild = guildsManager.getGuildById(entry.guildId());
+            if (guild != null) {
+                page.add(guild);
+            }
+        }
+        return page;
+    }
+
+    public int getRankedGuildCount() {
+        return getRankingSnapshot().size();
+    }
+
+    private List<RankingEntry> getRankingSnapshot() {
+        if (rebuildOnRead && rankingChanged) {
+            rebuildSnapshot();
+        }
+        return rankingSnapshot;
+    }
+
+    private boolean isOnlineOnNetwork(UUID uuid) {
+        return CoreBukkitPlugin.getInstance().getPlayerManager().getOnlinePlayers().containsKey(uuid);
+    }
+
+    private record RankingEntry(UUID guildId, int online) {}
+}
@@ -0,0 +1,326 @@
+package fr.iban.guilds.manager;
+
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.dto.GuildChanges;
+import fr.iban.guilds.model.dto.GuildPlayerChanges;
+import fr.iban.guilds.model.dto.RecoveryEntry;
+import fr.iban.guilds.storage.SqlStorage;
+import fr.iban.guilds.util.RecoverableTask;
+import fr.iban.guilds.util.StripedExecutor;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File d'écriture différée : les sauvegardes répétées d'une même guilde ou d'un même joueur
+ * pendant la fenêtre configurée sont fusionnées puis écrites dans une seule transaction.
+ */
+public class PersistenceQueue {
+
+    private final GuildsPlugin plugin;
+    private final GuildsManagerImpl guildsManager;
+    private final SqlStorage storage;
+    private final RecoveryJournal recoveryJournal;
+    private final long delayMillis;
+    private final long retryDelayMillis;
+    private final long maxRetryDelayMillis;
+    private final int maxAttempts;
+
+    private final Map<UUID, Guild> pendingGuilds = new LinkedHashMap<>();
+    private final Map<UUID, GuildPlayer> pendingPlayers = new LinkedHashMap<>();
+    //Guildes et joueurs dont l'écriture a échoué, en attente de la prochaine tentative
+    private final Map<UUID, Guild> retryingGuilds = new LinkedHashMap<>();
+    private final Map<UUID, GuildPlayer> retryingPlayers = new LinkedHashMap<>();
+    //Nombre d'échecs consécutifs par guilde et par joueur
+    private final Map<UUID, Integer> guildAttempts = new HashMap<>();
+    private final Map<UUID, Integer> playerAttempts = new HashMap<>();
+    private boolean flushScheduled;
+    private boolean closed;
+
+    private final AtomicLong mergedSaves = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushCount = new AtomicLong();
+    private final AtomicLong lastFlushMillis = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+
+    public PersistenceQueue(GuildsPlugin plugin, GuildsManagerImpl guildsManager, SqlStorage storage, RecoveryJournal recoveryJournal) {
+        this.plugin = plugin;
+        this.guildsManager = guildsManager;
+        this.storage = storage;
+        this.recoveryJournal = recoveryJournal;
+        this.delayMillis = plugin.getConfiguration().getLong("persistence.write-behind-delay", 500L);
+        this.retryDelayMillis = Math.max(1L, plugin.getConfiguration().getLong("persistence.retry-delay", 1000L));
+        this.maxRetryDelayMillis = Math.max(retryDelayMillis, plugin.getConfiguration().getLong("persistence.max-retry-delay", 60000L));
+        this.maxAttempts = Math.max(1, plugin.getConfiguration().getInt("persistence.max-attempts", 5));
+    }
+
+    public synchronized void enqueue(Guild guild) {
+        if (closed) {
+            recoveryJournal.append(toRecoveryEntries(drain(List.of(guild), List.of())));
+            return;
+        }
+        //Déjà en attente d'une nouvelle tentative : la modification sera écrite avec elle
+        if (retryingGuilds.containsKey(guild.getId()) || pendingGuilds.put(guild.getId(), guild) != null) {
+            mergedSaves.incrementAndGet();
+        }
+        scheduleFlush();
+    }
+
+    public synchronized void enqueue(GuildPlayer guildPlayer) {
+        if (closed) {
+            recoveryJournal.append(toRecoveryEntries(drain(List.of(), List.of(guildPlayer))));
+            return;
+        }
+        if (retryingPlayers.containsKey(guildPlayer.getUuid()) || pendingPlayers.put(guildPlayer.getUuid(), guildPlayer) != null) {
+            mergedSaves.incrementAndGet();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Annule la sauvegarde en attente d'une guilde qui va être supprimée
+     */
+    public synchronized void cancelGuild(UUID guildId) {
+        pendingGuilds.remove(guildId);
+        retryingGuilds.remove(guildId);
+        guildAttempts.remove(guildId);
+        pendingPlayers.values().removeIf(guildPlayer -> guildPlayer.getGuild().getId().equals(guildId));
+        retryingPlayers.values().removeIf(guildPlayer -> guildPlayer.getGuild().getId().equals(guildId));
+    }
+
+    /**
+     * Annule la sauvegarde en attente d'un joueur qui va être supprimé
+     */
+    public synchronized void cancelPlayer(UUID uuid) {
+        pendingPlayers.remove(uuid);
+        retryingPlayers.remove(uuid);
+        playerAttempts.remove(uuid);
+    }
+
+    /**
+     * Envoie une dernière fois les sauvegardes en attente vers les files de stockage puis refuse les suivantes,
+     * à appeler avant l'arrêt des files. Les écritures qui échouent ensuite sont conservées dans le fichier de reprise.
+     * Les écritures en attente d'une nouvelle tentative sont tentées une dernière fois.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        retryingGuilds.forEach(pendingGuilds::putIfAbsent);
+        retryingPlayers.forEach(pendingPlayers::putIfAbsent);
+        retryingGuilds.clear();
+        retryingPlayers.clear();
+        dispatch();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled || closed) {
+            return;
+        }
+
+        flushScheduled = true;
+        if (delayMillis <= 0) {
+            dispatchFlush();
+        } else {
+            plugin.getScheduler().runLaterAsync(this::dispatchFlush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void dispatchFlush() {
+        flushScheduled = false;
+        if (closed) {
+            return;
+        }
+        dispatch();
+    }
+
+    /**
+     * Répartit les sauvegardes en attente sur les files de stockage, selon la guilde concernée,
+     * pour que chaque file écrive ses guildes dans sa propre transaction.
+     * Appelé sous le verrou pour que close() ne puisse pas s'intercaler avant l'arrêt des files.
+     */
+    private void dispatch() {
+        StripedExecutor executor = plugin.getStorageExecutor();
+        Map<Integer, List<Guild>> guildsByStripe = new HashMap<>();
+        Map<Integer, List<GuildPlayer>> playersByStripe = new HashMap<>();
+
+        for (Guild guild : pendingGuilds.values()) {
+            guildsByStripe.computeIfAbsent(executor.getStripe(guild.getId()), stripe -> new ArrayList<>()).add(guild);
+        }
+        for (GuildPlayer guildPlayer : pendingPlayers.values()) {
+            playersByStripe.computeIfAbsent(executor.getStripe(guildPlayer.getGuild().getId()), stripe -> new ArrayList<>()).add(guildPlayer);
+        }
+        pendingGuilds.clear();
+        pendingPlayers.clear();
+
+        Set<Integer> stripes = new HashSet<>(guildsByStripe.keySet());
+        stripes.addAll(playersByStripe.keySet());
+        for (int stripe : stripes) {
+            List<Guild> guilds = guildsByStripe.getOrDefault(stripe, List.of());
+            List<GuildPlayer> guildPlayers = playersByStripe.getOrDefault(stripe, List.of());
+            executor.executeOnStripe(stripe, new RecoverableTask(() -> write(guilds, guildPlayers),
+                    () -> toRecoveryEntries(drain(guilds, guildPlayers))));
+        }
+    }
+
+    /**
+     * Seuls les champs modifiés depuis la dernière écriture sont envoyés à la base.
+     */
+    private void write(List<Guild> guilds, List<GuildPlayer> guildPlayers) {
+        Changes changes = drain(guilds, guildPlayers);
+        List<GuildChanges> guildChanges = changes.guilds();
+        List<GuildPlayerChanges> guildPlayerChanges = changes.guildPlayers();
+
+        if (guildChanges.isEmpty() && guildPlayerChanges.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<UUID, Long> versions = storage.saveBatch(guildChanges, guildPlayerChanges);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        flushCount.incrementAndGet();
+        lastFlushMillis.set(elapsed);
+        totalFlushMillis.addAndGet(elapsed);
+
+        if (versions == null) {
+            failedFlushCount.incrementAndGet();
+            plugin.getLogger().warning("Échec de l'écriture de " + guildChanges.size() + " guildes et " + guildPlayerChanges.size() + " joueurs de guilde.");
+            retry(changes);
+            return;
+        }
+
+        onWritten(changes);
+        guildsManager.publishChanges(guildChanges, guildPlayerChanges, versions);
+    }
+
+    private synchronized void onWritten(Changes changes) {
+        changes.guilds().forEach(guildChanges -> guildAttempts.remove(guildChanges.guild().getId()));
+        changes.guildPlayers().forEach(guildPlayerChanges -> playerAttempts.remove(guildPlayerChanges.guildPlayer().getUuid()));
+    }
+
+    /**
+     * Remet de côté des modifications dont l'écriture a échoué, pour une nouvelle tentative après un délai
+     * qui double à chaque échec. Après maxAttempts échecs, ou si la file est fermée, elles sont conservées
+     * dans le fichier de reprise.
+     */
+    private synchronized void retry(Changes changes) {
+        if (closed) {
+            recoveryJournal.append(toRecoveryEntries(changes));
+            return;
+        }
+
+        List<GuildChanges> abandonedGuilds = new ArrayList<>();
+        List<GuildPlayerChanges> abandonedPlayers = new ArrayList<>();
+        List<UUID> retriedGuilds = new ArrayList<>();
+        List<UUID> retriedPlayers = new ArrayList<>();
+        int attempts = 0;
+
+        for (GuildChanges guildChanges : changes.guilds()) {
+            Guild guild = guildChanges.guild();
+            int guildAttempt = guildAttempts.merge(guild.getId(), 1, Integer::sum);
+            if (guildAttempt >= maxAttempts) {
+                guildAttempts.remove(guild.getId());
+                abandonedGuilds.add(guildChanges);
+                continue;
+            }
+            guild.restoreChanges(guildChanges);
+            retryingGuilds.putIfAbsent(guild.getId(), guild);
+            retriedGuilds.add(guild.getId());
+            attempts = Math.max(attempts, guildAttempt);
+        }
+        for (GuildPlayerChanges guildPlayerChanges : changes.guildPlayers()) {
+            GuildPlayer guildPlayer = guildPlayerChanges.guildPlayer();
+            int playerAttempt = playerAttempts.merge(guildPlayer.getUuid(), 1, Integer::sum);
+            if (playerAttempt >= maxAttempts) {
+                playerAttempts.remove(guildPlayer.getUuid());
+                abandonedPlayers.add(guildPlayerChanges);
+                continue;
+            }
+            guildPlayer.restoreChanges(guildPlayerChanges);
+            retryingPlayers.putIfAbsent(guildPlayer.getUuid(), guildPlayer);
+            retriedPlayers.add(guildPlayer.getUuid());
+            attempts = Math.max(attempts, playerAttempt);
+        }
+
+        if (!abandonedGuilds.isEmpty() || !abandonedPlayers.isEmpty()) {
+            plugin.getLogger().severe("Écriture abandonnée après " + maxAttempts + " échecs pour " + abandonedGuilds.size()
+                    + " guildes et " + abandonedPlayers.size() + " joueurs de guilde.");
+            recoveryJournal.append(toRecoveryEntries(new Changes(abandonedGuilds, abandonedPlayers)));
+        }
+
+        if (attempts > 0) {
+            long delay = Math.min(maxRetryDelayMillis, retryDelayMillis << Math.min(attempts - 1, 20));
+            plugin.getScheduler().runLaterAsync(() -> requeue(retriedGuilds, retriedPlayers), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Remet dans la file les écritures dont le délai avant nouvelle tentative est écoulé.
+     * Celles qui ont été annulées ou déjà envoyées par close() ne sont plus dans l'attente.
+     */
+    private synchronized void requeue(List<UUID> guildIds, List<UUID> playerIds) {
+        if (closed) {
+            return;
+        }
+
+        for (UUID guildId : guildIds) {
+            Guild guild = retryingGuilds.remove(guildId);
+            if (guild != null) {
+                pendingGuilds.putIfAbsent(guildId, guild);
+            }
+        }
+        for (UUID uuid : playerIds) {
+            GuildPlayer guildPlayer = retryingPlayers.remove(uuid);
+            if (guildPlayer != null) {
+                pendingPlayers.putIfAbsent(uuid, guildPlayer);
+            }
+        }
+        scheduleFlush();
+    }
+
+    private static Changes drain(List<Guild> guilds, List<GuildPlayer> guildPlayers) {
+        return new Changes(
+                guilds.stream().map(Guild::drainChanges).filter(changes -> !changes.isEmpty()).toList(),
+                guildPlayers.stream().map(GuildPlayer::drainChanges).filter(changes -> !changes.isEmpty()).toList()
+        );
+    }
+
+    private static List<RecoveryEntry> toRecoveryEntries(Changes changes) {
+        List<RecoveryEntry> entries = new ArrayList<>();
+        changes.guilds().forEach(guildChanges -> entries.add(RecoveryEntry.saveGuild(guildChanges)));
+        changes.guildPlayers().forEach(guildPlayerChanges -> entries.add(RecoveryEntry.savePlayer(guildPlayerChanges)));
+        return entries;
+    }
+
+    private record Changes(List<GuildChanges> guilds, List<GuildPlayerChanges> guildPlayers) {}
+
+    public synchronized int getDepth() {
+        return pendingGuilds.size() + pendingPlayers.size() + retryingGuilds.size() + retryingPlayers.size();
+    }
+
+    public long getMergedSaves() {
+        return mergedSaves.get();
+    }
+
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushCount.get();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis.get();
+    }
+
+    public long getAverageFlushMillis() {
+        long count = flushCount.get();
+        return count == 0 ? 0 : totalFlushMillis.get() / count;
+    }
+}
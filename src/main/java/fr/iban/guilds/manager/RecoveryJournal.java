@@ -0,0 +1,219 @@
+package fr.iban.guilds.manager;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.enums.GuildPlayerField;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.GuildRank;
+import fr.iban.guilds.model.dto.GuildLogEvent;
+import fr.iban.guilds.model.dto.GuildRankDTO;
+import fr.iban.guilds.model.dto.PendingGuildLog;
+import fr.iban.guilds.model.dto.RecoveryEntry;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Fichier de reprise : les écritures qui n'ont pas pu être faites avant l'arrêt y sont conservées
+ * (une entrée JSON par ligne) puis rejouées au démarrage suivant, une fois les guildes chargées.
+ */
+public class RecoveryJournal {
+
+    private final GuildsPlugin plugin;
+    private final File file;
+    private final Gson gson = new Gson();
+
+    public RecoveryJournal(GuildsPlugin plugin) {
+        this.plugin = plugin;
+        this.file = new File(plugin.getDataFolder(), "recovery.jsonl");
+    }
+
+    public synchronized void append(List<RecoveryEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (RecoveryEntry entry : entries) {
+                writer.write(gson.toJson(entry));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Impossible d'écrire " + entries.size() + " opérations dans le fichier de reprise : " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        plugin.getLogger().warning(entries.size() + " opérations non écrites ont été conservées dans " + file.getName() + ".");
+    }
+
+    /**
+     * Rejoue les opérations du fichier de reprise puis le supprime
+     */
+    public synchronized void replay(GuildsManagerImpl guildsManager) {
+        if (!file.exists()) {
+            return;
+        }
+
+        List<RecoveryEntry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    entries.add(gson.fromJson(line, RecoveryEntry.class));
+                } catch (JsonParseException e) {
+                    plugin.getLogger().warning("Entrée invalide ignorée dans " + file.getName() + " : " + line);
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("Impossible de lire le fichier de reprise : " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        for (RecoveryEntry entry : entries) {
+            apply(guildsManager, entry);
+        }
+
+        File replayed = new File(plugin.getDataFolder(), "recovery-" + System.currentTimeMillis() + ".jsonl.old");
+        if (!file.renameTo(replayed)) {
+            file.delete();
+        }
+        plugin.getLogger().info(entries.size() + " opérations du fichier de reprise ont été rejouées.");
+    }
+
+    private void apply(GuildsManagerImpl guildsManager, RecoveryEntry entry) {
+        Guild guild = guildsManager.getGuildById(entry.guildId());
+
+        switch (entry.type()) {
+            case SAVE_GUILD -> applyGuild(guildsManager, guild, entry);
+            case SAVE_PLAYER -> applyPlayer(guildsManager, guild, entry);
+            case DELETE_GUILD -> {
+                if (guild != null) {
+                    guildsManager.deleteGuild(guild);
+                }
+            }
+            case DELETE_PLAYER -> {
+                GuildPlayer guildPlayer = guild == null ? null : guild.getMember(entry.playerId());
+                if (guildPlayer != null) {
+                    guildsManager.removeMember(guild, guildPlayer.getUuid());
+                    guildsManager.deletePlayer(guildPlayer);
+                }
+            }
+            case LOG -> {
+                if (guild != null) {
+                    //Les entrées écrites avant les événements typés n'ont que le texte, et celles écrites avant
+                    //la conservation des dates sont datées du rejeu
+                    GuildLogEvent event = entry.logEvent() != null ? entry.logEvent() : GuildLogEvent.text(entry.text());
+                    LocalDateTime createdAt = entry.logCreatedAt() != null ? LocalDateTime.parse(entry.logCreatedAt()) : LocalDateTime.now();
+                    guildsManager.getLogWriter().append(new PendingGuildLog(guild.getId(), event, createdAt));
+                }
+            }
+        }
+    }
+
+    private void applyGuild(GuildsManagerImpl guildsManager, Guild guild, RecoveryEntry entry) {
+        if (guild == null) {
+            if (!entry.insert()) {
+                //La guilde a été supprimée entre-temps
+                return;
+            }
+            guild = new Guild(entry.guildId(), entry.name(), entry.balance(), entry.exp(), new Date());
+            guild.setOwnerUUID(entry.ownerId());
+            guild.setHome(entry.home());
+        } else {
+            for (GuildField field : entry.guildFields()) {
+                switch (field) {
+                    case BALANCE -> guild.setBalance(entry.balance());
+                    case EXP -> guild.setExp(entry.exp());
+                    case HOME -> guild.setHome(entry.home());
+                    case OWNER -> guild.setOwnerUUID(entry.ownerId());
+                    case NAME -> {
+                        //Le renommage n'est pas possible en jeu, le nom n'est écrit qu'à la création
+                    }
+                }
+            }
+        }
+
+        for (GuildRankDTO savedRank : entry.ranks()) {
+            GuildRank rank = guild.getRankById(savedRank.id());
+            if (rank == null) {
+                rank = new GuildRank(savedRank.id(), savedRank.name(), savedRank.order(), new HashSet<>(savedRank.permissions()));
+                guild.addRank(rank);
+            } else {
+                rank.setName(savedRank.name());
+                rank.setPermissions(new HashSet<>(savedRank.permissions()));
+            }
+            rank.setOrder(savedRank.order());
+        }
+
+        for (GuildRank rank : guild.getRanks()) {
+            if (entry.removedRankIds().contains(rank.getId())) {
+                guild.removeRank(rank);
+            }
+        }
+        guild.sortRanks();
+
+        for (Guild ally : entry.addedAllianceIds().stream().map(guildsManager::getGuildById).toList()) {
+            if (ally != null) {
+                guild.addAlliance(ally);
+            }
+        }
+
+        for (Guild ally : entry.removedAllianceIds().stream().map(guildsManager::getGuildById).toList()) {
+            if (ally != null) {
+                guild.removeAlliance(ally);
+            }
+        }
+
+        guildsManager.saveGuild(guild);
+    }
+
+    private void applyPlayer(GuildsManagerImpl guildsManager, Guild guild, RecoveryEntry entry) {
+        if (guild == null) {
+            return;
+        }
+
+        GuildRank rank = guild.getRankById(entry.rankId());
+        if (rank == null) {
+            rank = guild.getDefautRank();
+        }
+        GuildPlayer guildPlayer = guild.getMember(entry.playerId());
+
+        if (guildPlayer == null) {
+            Guild previousGuild = guildsManager.getGuildByPlayerId(entry.playerId());
+            if (previousGuild != null) {
+                guildsManager.removeMember(previousGuild, entry.playerId());
+            }
+            guildPlayer = new GuildPlayer(entry.playerId(), guild, rank, entry.chatMode());
+            guildsManager.addMember(guild, guildPlayer);
+        } else {
+            for (GuildPlayerField field : entry.playerFields()) {
+                switch (field) {
+                    case RANK -> guildPlayer.setRank(rank);
+                    case CHAT_MODE -> guildPlayer.setChatMode(entry.chatMode());
+                    case GUILD -> guildPlayer.setGuild(guild);
+                }
+            }
+        }
+
+        guildsManager.savePlayer(guildPlayer);
+    }
+}
@@ -0,0 +1,89 @@
+package fr.iban.guilds.manager;
+
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.model.dto.GuildDelta;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regroupe les demandes de rechargement reçues des autres serveurs : les demandes pour une même guilde
+ * ou un même joueur pendant la fenêtre configurée, ou tant qu'un rechargement est en attente,
+ * ne provoquent qu'un seul rechargement.
+ */
+public class SyncDebouncer {
+
+    private final GuildsPlugin plugin;
+    private final GuildsManagerImpl guildsManager;
+    private final long delayMillis;
+
+    private final Set<UUID> pendingGuilds = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> pendingPlayers = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong droppedDeltas = new AtomicLong();
+
+    public SyncDebouncer(GuildsPlugin plugin, GuildsManagerImpl guildsManager) {
+        this.plugin = plugin;
+        this.guildsManager = guildsManager;
+        this.delayMillis = plugin.getConfiguration().getLong("sync.debounce-delay", 250L);
+    }
+
+    public void requestGuildReload(UUID guildId) {
+        received.incrementAndGet();
+        if (!pendingGuilds.add(guildId)) {
+            merged.incrementAndGet();
+            return;
+        }
+
+        schedule(() -> guildsManager.reloadGuildFromDB(guildId, () -> pendingGuilds.remove(guildId)));
+    }
+
+    public void requestPlayerReload(UUID uuid) {
+        received.incrementAndGet();
+        if (!pendingPlayers.add(uuid)) {
+            merged.incrementAndGet();
+            return;
+        }
+
+        schedule(() -> guildsManager.reloadGuildPlayerFromDB(uuid, () -> pendingPlayers.remove(uuid)));
+    }
+
+    /**
+     * Les modifications d'une guilde dont le rechargement est déjà en attente sont ignorées :
+     * le rechargement lira un état au moins aussi récent.
+     */
+    public void handleDelta(GuildDelta delta) {
+        received.incrementAndGet();
+        if (pendingGuilds.contains(delta.guildId())) {
+            droppedDeltas.incrementAndGet();
+            return;
+        }
+
+        guildsManager.applyDelta(delta);
+    }
+
+    private void schedule(Runnable reload) {
+        if (delayMillis <= 0) {
+            reload.run();
+        } else {
+            plugin.getScheduler().runLaterAsync(reload, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public long getReceived() {
+        return received.get();
+    }
+
+    public long getMerged() {
+        return merged.get();
+    }
+
+    public long getDroppedDeltas() {
+        return droppedDeltas.get();
+    }
+}
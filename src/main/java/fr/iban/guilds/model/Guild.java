@@ -1,12 +1,15 @@
 package fr.iban.guilds.model;
 
-import fr.iban.bukkitcore.CoreBukkitPlugin;
 import fr.iban.common.teleport.SLocation;
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.model.dto.GuildChanges;
 import net.kyori.adventure.text.Component;
 
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Guild {
 
@@ -14,15 +17,33 @@ public class Guild {
     private String name;
     private UUID owner;
     private final Map<UUID, GuildPlayer> members = new ConcurrentHashMap<>();
+    private final Map<UUID, GuildPlayer> membersView = Collections.unmodifiableMap(members);
+    //Membres regroupés par identifiant de rang, tenu à jour par addMember, removeMember et GuildPlayer#setRank
+    private final Map<UUID, Set<GuildPlayer>> membersByRank = new ConcurrentHashMap<>();
+    //Membres connectés au réseau, tenu à jour par OnlineTracker
+    private final Set<UUID> onlineMembers = ConcurrentHashMap.newKeySet();
     private double balance;
     private long exp;
     private SLocation home;
     private final Date createdAt;
 
-    private final List<UUID> invites = new ArrayList<>();
-    private final List<UUID> allianceInvites = new ArrayList<>();
-    private final List<Guild> alliances = new ArrayList<>();
-    private List<GuildRank> ranks = new ArrayList<>();
+    //Modifiées par les commandes et lues par les threads de chat et de stockage
+    private final List<UUID> invites = new CopyOnWriteArrayList<>();
+    private final List<UUID> allianceInvites = new CopyOnWriteArrayList<>();
+    //Alliés, remplacés en entier à chaque modification pour être lus sans verrou
+    private volatile List<Guild> alliances = List.of();
+    //Rangs triés par ordre, l'ordre de chaque rang correspond à sa position. Remplacés à chaque modification.
+    private volatile List<GuildRank> ranks = List.of();
+    private volatile Map<UUID, GuildRank> ranksById = Map.of();
+    private volatile Map<String, GuildRank> ranksByName = Map.of();
+
+    private volatile long version;
+    private boolean persisted;
+    private boolean applyingRemote;
+    private final Set<GuildField> dirtyFields = EnumSet.noneOf(GuildField.class);
+    private final Set<UUID> removedRankIds = new HashSet<>();
+    private final Set<UUID> addedAllianceIds = new HashSet<>();
+    private final Set<UUID> removedAllianceIds = new HashSet<>();
 
     public Guild(UUID id, String name, double balance, long exp, Date createdAt) {
         this.id = id;
@@ -50,14 +71,68 @@ public class Guild {
 
     public void setName(String name) {
         this.name = name;
+        markDirty(GuildField.NAME);
     }
 
     public Map<UUID, GuildPlayer> getMembers() {
-        return members;
+        return membersView;
+    }
+
+    /**
+     * Ajoute le membre, en remplaçant l'éventuelle entrée existante pour ce joueur
+     */
+    public synchronized void addMember(GuildPlayer guildPlayer) {
+        GuildPlayer previous = members.put(guildPlayer.getUuid(), guildPlayer);
+        if (previous != null) {
+            unindexMember(previous, previous.getRank());
+        }
+        indexMember(guildPlayer, guildPlayer.getRank());
+    }
+
+    public synchronized GuildPlayer removeMember(UUID uuid) {
+        GuildPlayer removed = members.remove(uuid);
+        if (removed != null) {
+            unindexMember(removed, removed.getRank());
+            onlineMembers.remove(uuid);
+        }
+        return removed;
     }
 
     public List<GuildPlayer> getMembersByRank(GuildRank rank) {
-        return members.values().stream().filter(member -> member.getRank().equals(rank)).toList();
+        Set<GuildPlayer> rankMembers = membersByRank.get(rank.getId());
+        return rankMembers == null ? List.of() : List.copyOf(rankMembers);
+    }
+
+    public int getMemberCountByRank(GuildRank rank) {
+        Set<GuildPlayer> rankMembers = membersByRank.get(rank.getId());
+        return rankMembers == null ? 0 : rankMembers.size();
+    }
+
+    /**
+     * Appelé par {@link GuildPlayer#setRank(GuildRank)} pour déplacer le membre dans l'index des rangs
+     */
+    synchronized void onMemberRankChanged(GuildPlayer guildPlayer, GuildRank oldRank) {
+        if (members.get(guildPlayer.getUuid()) != guildPlayer) {
+            return;
+        }
+        unindexMember(guildPlayer, oldRank);
+        indexMember(guildPlayer, guildPlayer.getRank());
+    }
+
+    private void indexMember(GuildPlayer guildPlayer, GuildRank rank) {
+        if (rank != null) {
+            membersByRank.computeIfAbsent(rank.getId(), id -> ConcurrentHashMap.newKeySet()).add(guildPlayer);
+        }
+    }
+
+    private void unindexMember(GuildPlayer guildPlayer, GuildRank rank) {
+        if (rank == null) {
+            return;
+        }
+        membersByRank.computeIfPresent(rank.getId(), (id, rankMembers) -> {
+            rankMembers.remove(guildPlayer);
+            return rankMembers.isEmpty() ? null : rankMembers;
+        });
     }
 
     public GuildPlayer getMember(UUID uuid) {
@@ -70,6 +145,7 @@ public class Guild {
 
     public void setBalance(double balance) {
         this.balance = balance;
+        markDirty(GuildField.BALANCE);
     }
 
     public long getExp() {
@@ -78,6 +154,7 @@ public class Guild {
 
     public void setExp(long exp) {
         this.exp = exp;
+        markDirty(GuildField.EXP);
     }
 
     public SLocation getHome() {
@@ -86,15 +163,22 @@ public class Guild {
 
     public void setHome(SLocation home) {
         this.home = home;
+        markDirty(GuildField.HOME);
     }
 
     public void sendMessageToOnlineMembers(Component message) {
-        getMembers().values().forEach(member -> member.sendMessageIfOnline(message));
+        GuildsPlugin.getInstance().getMessageBroadcaster().broadcast(onlineMembers, message);
     }
 
+    /**
+     * Envoie le message aux membres connectés de la guilde et de ses alliés en un seul envoi
+     */
     public void sendMessageToAllies(Component message) {
-        getAlliances().forEach(guild -> guild.sendMessageToOnlineMembers(message));
-        sendMessageToOnlineMembers(message);
+        Set<UUID> recipients = new HashSet<>(onlineMembers);
+        for (Guild ally : getAlliances()) {
+            recipients.addAll(ally.onlineMembers);
+        }
+        GuildsPlugin.getInstance().getMessageBroadcaster().broadcast(recipients, message);
     }
 
     public List<UUID> getInvites() {
@@ -106,12 +190,28 @@ public class Guild {
     }
 
     public List<UUID> getOnlinePlayers() {
-        return CoreBukkitPlugin.getInstance().getPlayerManager().getOnlinePlayers().keySet().stream()
-                .filter(uuid -> getMembers().containsKey(uuid)).toList();
+        return List.copyOf(onlineMembers);
     }
 
     public int getOnlinePlayerAmount() {
-        return getOnlinePlayers().size();
+        return onlineMembers.size();
+    }
+
+    /**
+     * @return true si l'état du membre a changé
+     */
+    public boolean setOnline(UUID uuid, boolean online) {
+        if (online) {
+            return members.containsKey(uuid) && onlineMembers.add(uuid);
+        }
+        return onlineMembers.remove(uuid);
+    }
+
+    public void setOnlineMembers(Set<UUID> online) {
+        onlineMembers.retainAll(online);
+        for (UUID uuid : online) {
+            setOnline(uuid, true);
+        }
     }
 
     public List<UUID> getAllianceInvites() {
@@ -122,12 +222,60 @@ public class Guild {
         return alliances;
     }
 
+    public synchronized void addAlliance(Guild guild) {
+        if (alliances.contains(guild)) {
+            return;
+        }
+
+        List<Guild> updated = new ArrayList<>(alliances);
+        updated.add(guild);
+        alliances = List.copyOf(updated);
+        if (applyingRemote) {
+            return;
+        }
+        if (!removedAllianceIds.remove(guild.getId())) {
+            addedAllianceIds.add(guild.getId());
+        }
+    }
+
+    public synchronized void removeAlliance(Guild guild) {
+        List<Guild> updated = new ArrayList<>(alliances);
+        if (!updated.remove(guild)) {
+            return;
+        }
+
+        alliances = List.copyOf(updated);
+        if (applyingRemote) {
+            return;
+        }
+
+        if (!addedAllianceIds.remove(guild.getId())) {
+            removedAllianceIds.add(guild.getId());
+        }
+    }
+
+    /**
+     * Remplace en une seule étape l'instance d'un allié rechargé depuis la base, ou l'ajoute s'il manque.
+     * L'alliance est déjà enregistrée : elle n'est pas marquée comme à sauvegarder.
+     */
+    public synchronized void replaceAlliance(Guild guild) {
+        List<Guild> updated = new ArrayList<>(alliances);
+        int index = updated.indexOf(guild);
+        if (index < 0) {
+            updated.add(guild);
+        } else {
+            updated.set(index, guild);
+        }
+        alliances = List.copyOf(updated);
+    }
+
     public UUID getOwnerUUID() {
         return owner;
     }
 
     public void setOwnerUUID(UUID owner) {
         this.owner = owner;
+        markDirty(GuildField.OWNER);
     }
 
     public GuildPlayer getOwner() {
@@ -135,67 +283,233 @@ public class Guild {
     }
 
     public List<GuildRank> getRanks() {
-        return ranks.stream().sorted(Comparator.comparingInt(GuildRank::getOrder)).toList();
+        return ranks;
     }
 
-    public void setRanks(List<GuildRank> ranks) {
-        this.ranks = ranks;
-
+    public synchronized void setRanks(List<GuildRank> ranks) {
         for (GuildRank rank : ranks) {
             rank.setGuild(this);
         }
+
+        List<GuildRank> sorted = new ArrayList<>(ranks);
+        sorted.sort(Comparator.comparingInt(GuildRank::getOrder));
+        publishRanks(sorted);
     }
 
-    public void addRank(GuildRank rank) {
-        rank.setOrder(ranks.size());
+    public synchronized void addRank(GuildRank rank) {
         rank.setGuild(this);
-        this.ranks.add(rank);
+        List<GuildRank> updated = new ArrayList<>(ranks);
+        updated.add(rank);
+        publishRanks(updated);
     }
 
-    public void moveRankDown(GuildRank rank) {
-        int index = ranks.indexOf(rank);
-        if(index == 0) return;
-        GuildRank previous = ranks.get(index - 1);
-        ranks.set(index - 1, rank);
-        ranks.set(index, previous);
-        rank.setOrder(index - 1);
-        previous.setOrder(index);
+    public synchronized void moveRankDown(GuildRank rank) {
+        int index = indexOf(rank);
+        if(index <= 0) return;
+        List<GuildRank> updated = new ArrayList<>(ranks);
+        Collections.swap(updated, index, index - 1);
+        publishRanks(updated);
     }
 
-    public void moveRankUp(GuildRank rank) {
-        int index = ranks.indexOf(rank);
-        if(index == ranks.size() - 1) return;
-        GuildRank next = ranks.get(index + 1);
-        ranks.set(index + 1, rank);
-        ranks.set(index, next);
-        rank.setOrder(index + 1);
-        next.setOrder(index);
+    public synchronized void moveRankUp(GuildRank rank) {
+        int index = indexOf(rank);
+        if(index < 0 || index == ranks.size() - 1) return;
+        List<GuildRank> updated = new ArrayList<>(ranks);
+        Collections.swap(updated, index, index + 1);
+        publishRanks(updated);
     }
 
     public GuildRank getNextRank(GuildRank rank) {
-        int index = ranks.indexOf(rank);
-        if(index == ranks.size() - 1) return null;
+        List<GuildRank> ranks = this.ranks;
+        int index = indexOf(ranks, rank);
+        if(index < 0 || index == ranks.size() - 1) return null;
         return ranks.get(index + 1);
     }
 
     public GuildRank getPreviousRank(GuildRank rank) {
-        int index = ranks.indexOf(rank);
-        if(index == 0) return null;
+        List<GuildRank> ranks = this.ranks;
+        int index = indexOf(ranks, rank);
+        if(index <= 0) return null;
         return ranks.get(index - 1);
     }
 
-    public void removeRank(GuildRank rank) {
-        this.ranks.remove(rank);
+    public synchronized void removeRank(GuildRank rank) {
+        List<GuildRank> updated = new ArrayList<>(ranks);
+        if (!updated.remove(rank)) {
+            return;
+        }
+
+        publishRanks(updated);
+        membersByRank.remove(rank.getId());
+        if (!applyingRemote) {
+            removedRankIds.add(rank.getId());
+        }
     }
 
     public GuildRank getRank(String name) {
-        return ranks.stream().filter(rank -> rank.getName().equalsIgnoreCase(name)).findFirst().orElse(null);
+        return ranksByName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    public GuildRank getRankById(UUID id) {
+        return ranksById.get(id);
     }
 
     public GuildRank getDefautRank() {
         return ranks.getFirst();
     }
 
+    /**
+     * Retrie les rangs selon leur ordre, après que des ordres ont été modifiés directement
+     */
+    public synchronized void sortRanks() {
+        setRanks(ranks);
+    }
+
+    /**
+     * Met à jour l'index des noms après le renommage d'un rang
+     */
+    synchronized void reindexRanks() {
+        publishRanks(ranks);
+    }
+
+    private int indexOf(GuildRank rank) {
+        return indexOf(ranks, rank);
+    }
+
+    private static int indexOf(List<GuildRank> ranks, GuildRank rank) {
+        int order = rank.getOrder();
+        if (order >= 0 && order < ranks.size() && ranks.get(order) == rank) {
+            return order;
+        }
+        return ranks.indexOf(rank);
+    }
+
+    /**
+     * Renumérote les rangs selon leur position et remplace la liste et les index.
+     * Une renumérotation due à des modifications reçues d'un autre serveur n'est pas à sauvegarder.
+     */
+    private void publishRanks(List<GuildRank> sorted) {
+        Map<UUID, GuildRank> byId = new HashMap<>();
+        Map<String, GuildRank> byName = new HashMap<>();
+
+        for (int i = 0; i < sorted.size(); i++) {
+            GuildRank rank = sorted.get(i);
+            rank.renumber(i, !applyingRemote);
+            byId.put(rank.getId(), rank);
+            byName.putIfAbsent(rank.getName().toLowerCase(Locale.ROOT), rank);
+        }
+
+        this.ranks = List.copyOf(sorted);
+        this.ranksById = Map.copyOf(byId);
+        this.ranksByName = Map.copyOf(byName);
+    }
+
+    /*
+    DIRTY TRACKING
+     */
+
+    private synchronized void markDirty(GuildField field) {
+        if (!applyingRemote) {
+            dirtyFields.add(field);
+        }
+    }
+
+    /**
+     * Applique des modifications déjà écrites par un autre serveur, sans les marquer comme à sauvegarder
+     */
+    public synchronized void applyRemote(Runnable changes) {
+        applyingRemote = true;
+        try {
+            changes.run();
+        } finally {
+            applyingRemote = false;
+        }
+    }
+
+    /**
+     * Seul le thread qui applique les modifications détient le verrou de la guilde : les modifications locales
+     * faites en même temps par un autre thread restent marquées comme à sauvegarder
+     * @return true si le thread courant applique des modifications reçues d'un autre serveur
+     */
+    boolean isApplyingRemote() {
+        return Thread.holdsLock(this) && applyingRemote;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Indique que l'état en mémoire correspond à la base de données, après un chargement
+     */
+    public synchronized void markClean() {
+        persisted = true;
+        dirtyFields.clear();
+        removedRankIds.clear();
+        addedAllianceIds.clear();
+        removedAllianceIds.clear();
+        ranks.forEach(GuildRank::markClean);
+    }
+
+    /**
+     * Récupère les modifications en attente d'écriture et les considère comme écrites
+     */
+    public synchronized GuildChanges drainChanges() {
+        List<GuildRank> dirtyRanks = new ArrayList<>();
+        for (GuildRank rank : ranks) {
+            if (rank.isDirty()) {
+                rank.markClean();
+                dirtyRanks.add(rank);
+            }
+        }
+
+        GuildChanges changes = new GuildChanges(
+                this,
+                !persisted,
+                EnumSet.copyOf(dirtyFields),
+                dirtyRanks,
+                Set.copyOf(removedRankIds),
+                Set.copyOf(addedAllianceIds),
+                Set.copyOf(removedAllianceIds)
+        );
+
+        persisted = true;
+        dirtyFields.clear();
+        removedRankIds.clear();
+        addedAllianceIds.clear();
+        removedAllianceIds.clear();
+        return changes;
+    }
+
+    /**
+     * Remet en attente des modifications dont l'écriture a échoué
+     */
+    public synchronized void restoreChanges(GuildChanges changes) {
+        if (changes.insert()) {
+            persisted = false;
+        }
+
+        dirtyFields.addAll(changes.fields());
+        changes.ranks().stream().filter(ranks::contains).forEach(GuildRank::markDirty);
+        removedRankIds.addAll(changes.removedRankIds());
+
+        for (UUID allyId : changes.addedAllianceIds()) {
+            if (!removedAllianceIds.contains(allyId)) {
+                addedAllianceIds.add(allyId);
+            }
+        }
+
+        for (UUID allyId : changes.removedAllianceIds()) {
+            if (!addedAllianceIds.contains(allyId)) {
+                removedAllianceIds.add(allyId);
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null || getClass() != o.getClass()) return false;
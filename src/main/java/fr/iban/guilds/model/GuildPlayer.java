@@ -5,11 +5,12 @@ import fr.iban.bukkitcore.manager.BukkitPlayerManager;
 import fr.iban.guilds.enums.ChatMode;
 import fr.iban.guilds.enums.DefaultRank;
 import fr.iban.guilds.enums.GuildPermission;
-import fr.iban.guilds.model.dto.GuildPlayerDTO;
+import fr.iban.guilds.enums.GuildPlayerField;
+import fr.iban.guilds.model.dto.GuildPlayerChanges;
 import net.kyori.adventure.text.Component;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 
+import java.util.EnumSet;
+import java.util.Set;
 import java.util.UUID;
 
 public class GuildPlayer {
@@ -20,6 +21,10 @@ public class GuildPlayer {
     private String name;
     private GuildRank rank;
 
+    private volatile boolean bypass;
+    private boolean persisted;
+    private final Set<GuildPlayerField> dirtyFields = EnumSet.noneOf(GuildPlayerField.class);
+
     public GuildPlayer(UUID uuid, Guild guild, GuildRank rank, ChatMode chatMode) {
         this.uuid = uuid;
         this.guild = guild;
@@ -37,6 +42,7 @@ public class GuildPlayer {
 
     public void setGuild(Guild guild) {
         this.guild = guild;
+        markDirty(GuildPlayerField.GUILD);
     }
 
     public GuildRank getRank() {
@@ -44,7 +50,12 @@ public class GuildPlayer {
     }
 
     public void setRank(GuildRank rank) {
+        GuildRank oldRank = this.rank;
         this.rank = rank;
+        markDirty(GuildPlayerField.RANK);
+        if (guild != null && oldRank != rank) {
+            guild.onMemberRankChanged(this, oldRank);
+        }
     }
 
     public ChatMode getChatMode() {
@@ -53,6 +64,7 @@ public class GuildPlayer {
 
     public void setChatMode(ChatMode chatMode) {
         this.chatMode = chatMode;
+        markDirty(GuildPlayerField.CHAT_MODE);
     }
 
     public String getName() {
@@ -63,12 +75,14 @@ public class GuildPlayer {
     }
 
     public boolean isGranted(GuildPermission permission) {
-        Player player = Bukkit.getPlayer(uuid);
-        if (player != null && player.hasPermission("guilds.bypass")) {
-            return true;
-        }
+        return bypass || rank.hasPermission(permission) || isOwner();
+    }
 
-        return rank.hasPermission(permission) || isOwner();
+    /**
+     * Mis à jour par le cache de la permission guilds.bypass
+     */
+    public void setBypass(boolean bypass) {
+        this.bypass = bypass;
     }
 
     public boolean isOwner() {
@@ -78,4 +92,30 @@ public class GuildPlayer {
     public void sendMessageIfOnline(Component message) {
         CoreBukkitPlugin.getInstance().getPlayerManager().sendMessageIfOnline(uuid, message);
     }
+
+    private synchronized void markDirty(GuildPlayerField field) {
+        dirtyFields.add(field);
+    }
+
+    /**
+     * Indique que l'état en mémoire correspond à la base de données, après un chargement
+     */
+    public synchronized void markClean() {
+        persisted = true;
+        dirtyFields.clear();
+    }
+
+    public synchronized GuildPlayerChanges drainChanges() {
+        GuildPlayerChanges changes = new GuildPlayerChanges(this, !persisted, EnumSet.copyOf(dirtyFields));
+        persisted = true;
+        dirtyFields.clear();
+        return changes;
+    }
+
+    public synchronized void restoreChanges(GuildPlayerChanges changes) {
+        if (changes.insert()) {
+            persisted = false;
+        }
+        dirtyFields.addAll(changes.fields());
+    }
 }
@@ -6,52 +6,109 @@ import net.kyori.adventure.text.Component;
 
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class GuildRank {
 
     private UUID id;
     private String name;
-    private Set<GuildPermission> permissions;
+    private final AtomicLong permissions;
     private int order;
     private Guild guild;
+    private volatile boolean dirty = true;
+    private volatile Component displayName;
+    private volatile String miniMessageName;
 
     public GuildRank(UUID id, String name, int order, Set<GuildPermission> permissions) {
         this.id = id;
         this.name = name;
         this.order = order;
-        this.permissions = permissions;
+        this.permissions = new AtomicLong(GuildPermission.toMask(permissions));
     }
 
     public String getName() {
         return name;
     }
 
+    /**
+     * @return Le nom interprété en MiniMessage, mis en cache jusqu'au prochain renommage
+     */
     public Component getDisplayName() {
-        return ChatUtils.parseMiniMessage(name);
+        Component displayName = this.displayName;
+        if (displayName == null) {
+            displayName = ChatUtils.parseMiniMessage(name);
+            this.displayName = displayName;
+        }
+        return displayName;
+    }
+
+    /**
+     * @return Le nom normalisé en MiniMessage, pour les placeholders des menus, mis en cache jusqu'au prochain renommage
+     */
+    public String getMiniMessageName() {
+        String miniMessageName = this.miniMessageName;
+        if (miniMessageName == null) {
+            miniMessageName = ChatUtils.toMiniMessage(getDisplayName());
+            this.miniMessageName = miniMessageName;
+        }
+        return miniMessageName;
     }
 
     public void setName(String name) {
         this.name = name;
+        this.displayName = null;
+        this.miniMessageName = null;
+        markDirty();
+        if (guild != null) {
+            guild.reindexRanks();
+        }
     }
 
+    /**
+     * @return Une copie des permissions du rang
+     */
     public Set<GuildPermission> getPermissions() {
-        return permissions;
+        return GuildPermission.fromMask(permissions.get());
+    }
+
+    public long getPermissionsMask() {
+        return permissions.get();
     }
 
     public boolean hasPermission(GuildPermission permission) {
-        return permissions.contains(permission);
+        return (permissions.get() & permission.getMask()) != 0;
     }
 
     public void addPermission(GuildPermission permission) {
-        permissions.add(permission);
+        long previous = permissions.getAndUpdate(mask -> mask | permission.getMask());
+        if ((previous & permission.getMask()) == 0) {
+            markDirty();
+        }
     }
 
     public void removePermission(GuildPermission permission) {
-        permissions.remove(permission);
+        long previous = permissions.getAndUpdate(mask -> mask & ~permission.getMask());
+        if ((previous & permission.getMask()) != 0) {
+            markDirty();
+        }
+    }
+
+    /**
+     * Ajoute ou retire la permission en une seule opération atomique
+     */
+    public void togglePermission(GuildPermission permission) {
+        permissions.getAndUpdate(mask -> mask ^ permission.getMask());
+        markDirty();
     }
 
     public void setPermissions(Set<GuildPermission> permissions) {
-        this.permissions = permissions;
+        setPermissionsMask(GuildPermission.toMask(permissions));
+    }
+
+    public void setPermissionsMask(long mask) {
+        if (permissions.getAndSet(mask) != mask) {
+            markDirty();
+        }
     }
 
     public int getOrder() {
@@ -59,7 +116,22 @@ public class GuildRank {
     }
 
     public void setOrder(int order) {
-        this.order = order;
+        if (this.order != order) {
+            this.order = order;
+            markDirty();
+        }
+    }
+
+    /**
+     * Change la position du rang lors d'une renumérotation par la guilde
+     */
+    void renumber(int order, boolean markDirty) {
+        if (this.order != order) {
+            this.order = order;
+            if (markDirty) {
+                markDirty();
+            }
+        }
     }
 
     public UUID getId() {
@@ -77,4 +149,23 @@ public class GuildRank {
     public void setGuild(Guild guild) {
         this.guild = guild;
     }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Sans effet pendant l'application de modifications reçues d'un autre serveur, déjà écrites par celui-ci
+     */
+    public void markDirty() {
+        Guild guild = this.guild;
+        if (guild != null && guild.isApplyingRemote()) {
+            return;
+        }
+        this.dirty = true;
+    }
+
+    public void markClean() {
+        this.dirty = false;
+    }
 }
@@ -0,0 +1,6 @@
+package fr.iban.guilds.model.dto;
+
+import java.util.UUID;
+
+public record GuildAllianceDTO(UUID guildAId, UUID guildBId) {
+}
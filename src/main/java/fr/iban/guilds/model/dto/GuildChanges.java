@@ -0,0 +1,27 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildRank;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Modifications d'une guilde non encore écrites en base
+ * @param insert true si la guilde n'a jamais été enregistrée
+ */
+public record GuildChanges(Guild guild,
+                           boolean insert,
+                           Set<GuildField> fields,
+                           List<GuildRank> ranks,
+                           Set<UUID> removedRankIds,
+                           Set<UUID> addedAllianceIds,
+                           Set<UUID> removedAllianceIds) {
+
+    public boolean isEmpty() {
+        return !insert && fields.isEmpty() && ranks.isEmpty() && removedRankIds.isEmpty()
+                && addedAllianceIds.isEmpty() && removedAllianceIds.isEmpty();
+    }
+}
@@ -0,0 +1,63 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.common.teleport.SLocation;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.model.Guild;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Modifications d'une guilde envoyées aux autres serveurs après une écriture, pour qu'ils les appliquent
+ * en mémoire sans relire la guilde. Seules les valeurs des champs listés dans {@code fields} sont renseignées.
+ * @param version Version de la guilde après l'écriture, un écart avec la version locale provoque un rechargement complet
+ */
+public record GuildDelta(UUID guildId,
+                         long version,
+                         Set<GuildField> fields,
+                         String name,
+                         double balance,
+                         long exp,
+                         SLocation home,
+                         UUID ownerId,
+                         List<GuildRankDTO> ranks,
+                         Set<UUID> removedRankIds,
+                         Set<UUID> addedAllianceIds,
+                         Set<UUID> removedAllianceIds,
+                         List<GuildPlayerDTO> members,
+                         Set<UUID> removedMembers) {
+
+    public static GuildDelta of(Guild guild, long version, @Nullable GuildChanges changes, List<GuildPlayerChanges> guildPlayerChanges) {
+        List<GuildPlayerDTO> members = guildPlayerChanges.stream()
+                .map(GuildPlayerChanges::guildPlayer)
+                .map(guildPlayer -> new GuildPlayerDTO(guildPlayer.getUuid(), guild.getId(), guildPlayer.getRank().getName(), guildPlayer.getChatMode()))
+                .toList();
+
+        if (changes == null) {
+            return new GuildDelta(guild.getId(), version, EnumSet.noneOf(GuildField.class), null, 0, 0, null, null,
+                    List.of(), Set.of(), Set.of(), Set.of(), members, Set.of());
+        }
+
+        Set<GuildField> fields = changes.fields();
+        return new GuildDelta(guild.getId(), version, fields,
+                fields.contains(GuildField.NAME) ? guild.getName() : null,
+                guild.getBalance(),
+                guild.getExp(),
+                fields.contains(GuildField.HOME) ? guild.getHome() : null,
+                fields.contains(GuildField.OWNER) ? guild.getOwnerUUID() : null,
+                changes.ranks().stream().map(GuildRankDTO::of).toList(),
+                changes.removedRankIds(),
+                changes.addedAllianceIds(),
+                changes.removedAllianceIds(),
+                members,
+                Set.of());
+    }
+
+    public static GuildDelta memberLeft(UUID guildId, long version, UUID uuid) {
+        return new GuildDelta(guildId, version, EnumSet.noneOf(GuildField.class), null, 0, 0, null, null,
+                List.of(), Set.of(), Set.of(), Set.of(), List.of(), Set.of(uuid));
+    }
+}
@@ -0,0 +1,88 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.bukkitcore.CoreBukkitPlugin;
+import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.lang.Lang;
+import net.milkbowl.vault.economy.Economy;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Ligne du journal d'une guilde. La date et l'identifiant servent aussi de curseur pour lire la page suivante.
+ */
+public record GuildLogEntry(int id, UUID guildId, LocalDateTime createdAt, GuildLogEvent event) {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yy HH:mm:ss");
+
+    public String format() {
+        return DATE_FORMAT.format(createdAt) + " : " + render();
+    }
+
+    /**
+     * Met l'événement en forme avec les messages de la langue actuelle
+     */
+    public String render() {
+        return switch (event.type()) {
+            case TEXT -> event.payload().getOrDefault("text", "");
+            case GUILD_CREATED -> Lang.LOG_GUILD_CREATED.plainText("player", actorName());
+            case GUILD_DISBANDED -> Lang.LOG_GUILD_DISBANDED.plainText("player", actorName());
+            case MEMBER_JOINED -> Lang.MEMBER_JOINED.plainText("player", actorName());
+            case MEMBER_LEFT -> Lang.MEMBER_LEFT.plainText("player", actorName());
+            case MEMBER_KICKED -> Lang.KICK_SUCCESS.plainText("player", targetName());
+            case MEMBER_PROMOTED -> Lang.PROMOTE_SUCCESS.plainText("player", targetName(),
+                    "rank", event.payload().getOrDefault("rank", ""), "by", actorName());
+            case MEMBER_DEMOTED -> Lang.DEMOTE_SUCCESS.plainText("player", targetName(),
+                    "rank", event.payload().getOrDefault("rank", ""), "by", actorName());
+            case OWNER_TRANSFERRED -> Lang.TRANSFER_SUCCESS.plainText("player", actorName(), "target", targetName());
+            case HOME_SET -> Lang.LOG_HOME_SET.plainText("player", actorName());
+            case HOME_DELETED -> Lang.LOG_HOME_DELETE.plainText("player", actorName());
+            case BANK_DEPOSIT -> Lang.LOG_BANK_DEPOSIT.plainText("player", actorName(),
+                    "amount", formatMoney(event.amount()), "balance", formatMoney(balance()));
+            case BANK_WITHDRAW -> Lang.LOG_BANK_WITHDRAW.plainText("player", actorName(),
+                    "amount", formatMoney(event.amount()), "balance", formatMoney(balance()));
+            case ALLIANCE_FORMED -> Lang.ALLIANCE_ACCEPTED.plainText("guild", String.valueOf(event.target()));
+            case ALLIANCE_ENDED -> Lang.ALLIANCE_ENDED.plainText("guild", String.valueOf(event.target()));
+        };
+    }
+
+    /**
+     * @return Le nom du joueur à l'origine de l'événement, ou le motif pour les opérations faites par un plugin
+     */
+    private String actorName() {
+        if (event.actor() == null) {
+            return event.payload().getOrDefault("reason", "");
+        }
+        return playerName(event.actor());
+    }
+
+    private String targetName() {
+        String target = event.target();
+        if (target == null) {
+            return "";
+        }
+        try {
+            return playerName(UUID.fromString(target));
+        } catch (IllegalArgumentException e) {
+            return target;
+        }
+    }
+
+    private double balance() {
+        try {
+            return Double.parseDouble(event.payload().getOrDefault("balance", "0"));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String playerName(UUID uuid) {
+        return CoreBukkitPlugin.getInstance().getPlayerManager().getName(uuid);
+    }
+
+    private static String formatMoney(double amount) {
+        Economy economy = GuildsPlugin.getInstance().getEconomy();
+        return economy == null ? String.valueOf(amount) : economy.format(amount);
+    }
+}
@@ -0,0 +1,47 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.guilds.enums.GuildLogType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Événement du journal d'une guilde, stocké tel quel et mis en forme seulement à la lecture
+ * @param actor Joueur à l'origine de l'événement
+ * @param target Joueur (UUID) ou guilde (nom) concerné
+ * @param payload Valeurs propres au type d'événement (grade, solde, motif...)
+ */
+public record GuildLogEvent(GuildLogType type, @Nullable UUID actor, @Nullable String target, double amount, Map<String, String> payload) {
+
+    public GuildLogEvent {
+        payload = payload == null ? Map.of() : Map.copyOf(payload);
+    }
+
+    public static GuildLogEvent of(GuildLogType type, @Nullable UUID actor) {
+        return new GuildLogEvent(type, actor, null, 0, Map.of());
+    }
+
+    public static GuildLogEvent text(String text) {
+        return new GuildLogEvent(GuildLogType.TEXT, null, null, 0, Map.of("text", text));
+    }
+
+    public GuildLogEvent withTarget(UUID target) {
+        return withTarget(target.toString());
+    }
+
+    public GuildLogEvent withTarget(String target) {
+        return new GuildLogEvent(type, actor, target, amount, payload);
+    }
+
+    public GuildLogEvent withAmount(double amount) {
+        return new GuildLogEvent(type, actor, target, amount, payload);
+    }
+
+    public GuildLogEvent with(String key, String value) {
+        Map<String, String> values = new HashMap<>(payload);
+        values.put(key, value);
+        return new GuildLogEvent(type, actor, target, amount, values);
+    }
+}
@@ -0,0 +1,13 @@
+package fr.iban.guilds.model.dto;
+
+import java.util.List;
+
+/**
+ * @param total Nombre total de lignes du journal de la guilde
+ */
+public record GuildLogPage(List<GuildLogEntry> entries, int total, int pageSize) {
+
+    public int getMaxPage() {
+        return (int) Math.ceil(total / (double) pageSize);
+    }
+}
@@ -0,0 +1,17 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.guilds.enums.GuildPlayerField;
+import fr.iban.guilds.model.GuildPlayer;
+
+import java.util.Set;
+
+/**
+ * Modifications d'un joueur de guilde non encore écrites en base
+ * @param insert true si le joueur n'a jamais été enregistré dans sa guilde
+ */
+public record GuildPlayerChanges(GuildPlayer guildPlayer, boolean insert, Set<GuildPlayerField> fields) {
+
+    public boolean isEmpty() {
+        return !insert && fields.isEmpty();
+    }
+}
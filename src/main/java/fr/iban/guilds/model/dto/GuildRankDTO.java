@@ -0,0 +1,14 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.guilds.enums.GuildPermission;
+import fr.iban.guilds.model.GuildRank;
+
+import java.util.Set;
+import java.util.UUID;
+
+public record GuildRankDTO(UUID id, String name, int order, Set<GuildPermission> permissions) {
+
+    public static GuildRankDTO of(GuildRank rank) {
+        return new GuildRankDTO(rank.getId(), rank.getName(), rank.getOrder(), Set.copyOf(rank.getPermissions()));
+    }
+}
@@ -0,0 +1,9 @@
+package fr.iban.guilds.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Événement de journal en attente d'écriture, daté au moment où il a été produit
+ */
+public record PendingGuildLog(UUID guildId, GuildLogEvent event, LocalDateTime createdAt) {}
@@ -0,0 +1,75 @@
+package fr.iban.guilds.model.dto;
+
+import fr.iban.common.teleport.SLocation;
+import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.enums.GuildPlayerField;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildPlayer;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Opération de stockage qui n'a pas pu être écrite avant l'arrêt, conservée dans le fichier de reprise.
+ * Seuls les champs utiles au type d'opération sont renseignés.
+ */
+public record RecoveryEntry(Type type,
+                            UUID guildId,
+                            UUID playerId,
+                            String text,
+                            boolean insert,
+                            Set<GuildField> guildFields,
+                            Set<GuildPlayerField> playerFields,
+                            String name,
+                            double balance,
+                            long exp,
+                            SLocation home,
+                            UUID ownerId,
+                            List<GuildRankDTO> ranks,
+                            Set<UUID> removedRankIds,
+                            Set<UUID> addedAllianceIds,
+                            Set<UUID> removedAllianceIds,
+                            UUID rankId,
+                            ChatMode chatMode,
+                            GuildLogEvent logEvent,
+                            String logCreatedAt) {
+
+    public enum Type {
+        SAVE_GUILD, SAVE_PLAYER, DELETE_GUILD, DELETE_PLAYER, LOG
+    }
+
+    public static RecoveryEntry saveGuild(GuildChanges changes) {
+        Guild guild = changes.guild();
+        List<GuildRankDTO> ranks = changes.ranks().stream().map(GuildRankDTO::of).toList();
+        return new RecoveryEntry(Type.SAVE_GUILD, guild.getId(), null, null, changes.insert(), changes.fields(), null,
+                guild.getName(), guild.getBalance(), guild.getExp(), guild.getHome(), guild.getOwnerUUID(), ranks,
+                changes.removedRankIds(), changes.addedAllianceIds(), changes.removedAllianceIds(), null, null, null, null);
+    }
+
+    public static RecoveryEntry savePlayer(GuildPlayerChanges changes) {
+        GuildPlayer guildPlayer = changes.guildPlayer();
+        return new RecoveryEntry(Type.SAVE_PLAYER, guildPlayer.getGuild().getId(), guildPlayer.getUuid(), null,
+                changes.insert(), null, changes.fields(), null, 0, 0, null, null, null, null, null, null,
+                guildPlayer.getRank().getId(), guildPlayer.getChatMode(), null, null);
+    }
+
+    public static RecoveryEntry deleteGuild(UUID guildId) {
+        return new RecoveryEntry(Type.DELETE_GUILD, guildId, null, null, false, null, null, null, 0, 0, null, null,
+                null, null, null, null, null, null, null, null);
+    }
+
+    public static RecoveryEntry deletePlayer(UUID guildId, UUID playerId) {
+        return new RecoveryEntry(Type.DELETE_PLAYER, guildId, playerId, null, false, null, null, null, 0, 0, null, null,
+                null, null, null, null, null, null, null, null);
+    }
+
+    /**
+     * La date de la ligne est conservée pour qu'elle soit rejouée à sa place dans le journal
+     */
+    public static RecoveryEntry log(PendingGuildLog log) {
+        return new RecoveryEntry(Type.LOG, log.guildId(), null, null, false, null, null, null, 0, 0, null, null,
+                null, null, null, null, null, null, log.event(), log.createdAt().toString());
+    }
+}
@@ -1,6 +1,7 @@
 package fr.iban.guilds.placeholderapi;
 
 import fr.iban.guilds.GuildsPlugin;
+import fr.iban.guilds.lang.Lang;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.zmenu.data.GuildMenuData;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
@@ -51,6 +52,9 @@ public class GuildsPlaceholderExpansion extends PlaceholderExpansion {
         }
 
         if (params.equalsIgnoreCase("name")) {
+            if (!plugin.getGuildManager().isLoaded()) {
+                return Lang.PLACEHOLDER_LOADING.plainText();
+            }
             Guild guild = plugin.getGuildManager().getGuildByPlayer(player);
             return guild == null ? "aucune" : guild.getName().replace("'", "’");
         }
@@ -3,10 +3,12 @@ package fr.iban.guilds.service;
 import fr.iban.guilds.GuildsPlugin;
 import fr.iban.guilds.api.GuildManager;
 import fr.iban.guilds.api.service.GuildAllianceService;
+import fr.iban.guilds.enums.GuildLogType;
 import fr.iban.guilds.enums.GuildPermission;
 import fr.iban.guilds.lang.Lang;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.dto.GuildLogEvent;
 import fr.iban.guilds.util.GuildRequestMessage;
 import org.bukkit.entity.Player;
 
@@ -84,11 +86,12 @@ public class GuildAllianceServiceImpl implements GuildAllianceService {
         }
 
         guild.getAllianceInvites().remove(targetGuild.getId());
-        guild.getAlliances().add(targetGuild);
-        targetGuild.getAlliances().add(guild);
+        guild.addAlliance(targetGuild);
+        targetGuild.addAlliance(guild);
         guild.sendMessageToOnlineMembers(Lang.ALLIANCE_FORMED.component("guild", targetGuild.getName()));
         targetGuild.sendMessageToOnlineMembers(Lang.ALLIANCE_FORMED.component("guild", guild.getName()));
-        guildManager.addLog(guild, "Alliance avec la guilde " + targetGuild.getName() + " acceptée.");
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.ALLIANCE_FORMED, sender.getUniqueId())
+                .withTarget(targetGuild.getName()));
         guildManager.saveGuild(guild);
         guildManager.saveGuild(targetGuild);
     }
@@ -114,11 +117,12 @@ public class GuildAllianceServiceImpl implements GuildAllianceService {
             return;
         }
 
-        guild.getAlliances().remove(target);
-        target.getAlliances().remove(guild);
+        guild.removeAlliance(target);
+        target.removeAlliance(guild);
         guild.sendMessageToOnlineMembers(Lang.ALLIANCE_ENDED.component("guild", target.getName()));
         target.sendMessageToOnlineMembers(Lang.ALLIANCE_ENDED.component("guild", guild.getName()));
-        guildManager.addLog(guild, Lang.ALLIANCE_ENDED.plainText("guild", target.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.ALLIANCE_ENDED, sender.getUniqueId())
+                .withTarget(target.getName()));
         guildManager.saveGuild(guild);
         guildManager.saveGuild(target);
     }
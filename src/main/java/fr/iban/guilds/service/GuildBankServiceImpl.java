@@ -3,9 +3,11 @@ package fr.iban.guilds.service;
 import fr.iban.guilds.GuildsPlugin;
 import fr.iban.guilds.api.GuildManager;
 import fr.iban.guilds.api.service.GuildBankService;
+import fr.iban.guilds.enums.GuildLogType;
 import fr.iban.guilds.enums.GuildPermission;
 import fr.iban.guilds.lang.Lang;
 import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.dto.GuildLogEvent;
 import net.milkbowl.vault.economy.Economy;
 import org.bukkit.entity.Player;
 
@@ -54,11 +56,9 @@ public class GuildBankServiceImpl implements GuildBankService {
                 "amount", economy.format(amount),
                 "balance", economy.format(guild.getBalance())
         ));
-        guildManager.addLog(guild, Lang.LOG_BANK_DEPOSIT.toString(
-                "player", player.getName(),
-                "amount", economy.format(amount),
-                "balance", economy.format(guild.getBalance())
-        ));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.BANK_DEPOSIT, player.getUniqueId())
+                .withAmount(amount)
+                .with("balance", String.valueOf(guild.getBalance())));
         guildManager.saveGuild(guild);
     }
 
@@ -100,11 +100,9 @@ public class GuildBankServiceImpl implements GuildBankService {
                 "balance", economy.format(guild.getBalance())
         ));
         guildManager.saveGuild(guild);
-        guildManager.addLog(guild, Lang.LOG_BANK_WITHDRAW.toString(
-                "player", player.getName(),
-                "amount", economy.format(amount),
-                "balance", economy.format(guild.getBalance())
-        ));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.BANK_WITHDRAW, player.getUniqueId())
+                .withAmount(amount)
+                .with("balance", String.valueOf(guild.getBalance())));
     }
 
     @Override
@@ -142,11 +140,10 @@ public class GuildBankServiceImpl implements GuildBankService {
 
         boolean result = withdraw(guild, amount);
         if (result) {
-            guildManager.addLog(guild, Lang.LOG_BANK_WITHDRAW.toString(
-                    "reason", reason,
-                    "amount", economy.format(amount),
-                    "balance", economy.format(guild.getBalance())
-            ));
+            guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.BANK_WITHDRAW, null)
+                    .withAmount(amount)
+                    .with("balance", String.valueOf(guild.getBalance()))
+                    .with("reason", reason));
         }
         return result;
     }
@@ -87,7 +87,7 @@ public class GuildRankServiceImpl implements GuildRankService {
             return;
         }
 
-        if(!guild.getMembersByRank(rank).isEmpty()) {
+        if(guild.getMemberCountByRank(rank) > 0) {
             player.sendMessage(Lang.ERROR_RANK_NOT_EMPTY.component());
             return;
         }
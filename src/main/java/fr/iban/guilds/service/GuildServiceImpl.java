@@ -7,6 +7,7 @@ import fr.iban.guilds.api.GuildManager;
 import fr.iban.guilds.api.service.GuildService;
 import fr.iban.guilds.enums.ChatMode;
 import fr.iban.guilds.enums.DefaultRank;
+import fr.iban.guilds.enums.GuildLogType;
 import fr.iban.guilds.enums.GuildPermission;
 import fr.iban.guilds.event.GuildCreateEvent;
 import fr.iban.guilds.event.GuildDisbandEvent;
@@ -15,6 +16,7 @@ import fr.iban.guilds.lang.Lang;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
 import fr.iban.guilds.model.GuildRank;
+import fr.iban.guilds.model.dto.GuildLogEvent;
 import fr.iban.guilds.util.GuildRequestMessage;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
@@ -65,13 +67,13 @@ public class GuildServiceImpl implements GuildService {
         GuildRank ownerRank = guild.getRank(DefaultRank.OWNER.getName());
 
         GuildPlayer guildPlayer = new GuildPlayer(player.getUniqueId(), guild, ownerRank, ChatMode.PUBLIC);
-        guild.getMembers().put(player.getUniqueId(), guildPlayer);
+        guildManager.addMember(guild, guildPlayer);
 
         new GuildCreateEvent(guild).callEvent();
         guildManager.saveGuild(guild);
         guildManager.savePlayer(guildPlayer);
         player.sendMessage(Lang.GUILD_CREATED.component("name", name));
-        guildManager.addLog(guild, Lang.LOG_GUILD_CREATED.toString("player", player.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.GUILD_CREATED, player.getUniqueId()));
     }
 
     @Override
@@ -131,7 +133,7 @@ public class GuildServiceImpl implements GuildService {
         guild.sendMessageToOnlineMembers(Lang.GUILD_DISBANDED.component());
         guild.getMembers().forEach((uuid, gp) -> guildManager.deletePlayer(gp));
 
-        guildManager.addLog(guild, Lang.LOG_GUILD_DISBANDED.toString("player", player.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.GUILD_DISBANDED, player.getUniqueId()));
         guildManager.deleteGuild(guild);
         new GuildPostDisbandEvent(guild).callEvent();
     }
@@ -149,9 +151,9 @@ public class GuildServiceImpl implements GuildService {
         GuildPlayer guildPlayer = new GuildPlayer(uuid, guild, guild.getDefautRank(), ChatMode.PUBLIC);
         player.sendMessage(Lang.JOIN_SUCCESS.component("guild", guild.getName()));
         guild.sendMessageToOnlineMembers(Lang.MEMBER_JOINED.component("player", player.getName()));
-        guildManager.addLog(guild, Lang.MEMBER_JOINED.toString("player", player.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.MEMBER_JOINED, uuid));
         guild.getInvites().remove(uuid);
-        guild.getMembers().put(uuid, guildPlayer);
+        guildManager.addMember(guild, guildPlayer);
         guildManager.savePlayer(guildPlayer);
     }
 
@@ -171,10 +173,10 @@ public class GuildServiceImpl implements GuildService {
             return;
         }
 
-        guild.getMembers().remove(guildPlayer.getUuid());
+        guildManager.removeMember(guild, guildPlayer.getUuid());
         guildManager.deletePlayer(guildPlayer);
         player.sendMessage(Lang.LEAVE_SUCCESS.component());
-        guildManager.addLog(guild, Lang.MEMBER_LEFT.toString("player", player.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.MEMBER_LEFT, player.getUniqueId()));
         guild.sendMessageToOnlineMembers(Lang.MEMBER_LEFT.component("player", player.getName()));
     }
 
@@ -266,7 +268,7 @@ public class GuildServiceImpl implements GuildService {
         }
 
         guild.setHome(SLocationUtils.getSLocation(player.getLocation()));
-        guildManager.addLog(guild, Lang.LOG_HOME_SET.toString("player", player.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.HOME_SET, player.getUniqueId()));
         guildManager.saveGuild(guild);
         player.sendMessage(Lang.HOME_SET.component());
     }
@@ -282,7 +284,7 @@ public class GuildServiceImpl implements GuildService {
 
         guild.setHome(null);
         guildManager.saveGuild(guild);
-        guildManager.addLog(guild, Lang.LOG_HOME_DELETE.toString("player", player.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.HOME_DELETED, player.getUniqueId()));
         player.sendMessage(Lang.HOME_DELETE.component());
     }
 
@@ -317,10 +319,11 @@ public class GuildServiceImpl implements GuildService {
             return;
         }
 
-        guild.getMembers().remove(targetGuildPlayer.getUuid());
+        guildManager.removeMember(guild, targetGuildPlayer.getUuid());
         guild.sendMessageToOnlineMembers(Lang.KICK_SUCCESS.component("player", target.getName()));
         targetGuildPlayer.sendMessageIfOnline(Lang.KICK_TARGET.component());
-        guildManager.addLog(guild, Lang.KICK_SUCCESS.toString("player", target.getName()));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.MEMBER_KICKED, player.getUniqueId())
+                .withTarget(target.getUniqueId()));
         guildManager.deletePlayer(targetGuildPlayer);
     }
 
@@ -365,11 +368,9 @@ public class GuildServiceImpl implements GuildService {
             "rank", targetPlayer.getRank().getName(),
             "by", player.getName()
         ));
-        guildManager.addLog(guild, Lang.DEMOTE_SUCCESS.toString(
-            "player", target.getName(),
-            "rank", targetPlayer.getRank().getName(),
-            "by", player.getName()
-        ));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.MEMBER_DEMOTED, player.getUniqueId())
+                .withTarget(target.getUniqueId())
+                .with("rank", targetPlayer.getRank().getName()));
     }
 
     @Override
@@ -413,11 +414,9 @@ public class GuildServiceImpl implements GuildService {
             "rank", targetPlayer.getRank().getName(),
             "by", player.getName()
         ));
-        guildManager.addLog(guild, Lang.PROMOTE_SUCCESS.toString(
-            "player", target.getName(),
-            "rank", targetPlayer.getRank().getName(),
-            "by", player.getName()
-        ));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.MEMBER_PROMOTED, player.getUniqueId())
+                .withTarget(target.getUniqueId())
+                .with("rank", targetPlayer.getRank().getName()));
     }
 
     @Override
@@ -452,10 +451,8 @@ public class GuildServiceImpl implements GuildService {
             "player", player.getName(),
             "target", guildPlayer.getName()
         ));
-        guildManager.addLog(guild, Lang.TRANSFER_SUCCESS.toString(
-            "player", player.getName(),
-            "target", guildPlayer.getName()
-        ));
+        guildManager.addLog(guild, GuildLogEvent.of(GuildLogType.OWNER_TRANSFERRED, player.getUniqueId())
+                .withTarget(target.getUniqueId()));
     }
 
 
@@ -0,0 +1,113 @@
+package fr.iban.guilds.storage;
+
+import fr.iban.guilds.GuildsPlugin;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applique au démarrage les migrations du schéma qui n'ont pas encore été jouées, dans l'ordre de leur version.
+ * La dernière version appliquée est enregistrée dans la table guilds_schema_version.
+ * Une base créée avant cette table rejoue toutes les migrations : elles doivent donc pouvoir s'appliquer
+ * sur un schéma déjà à jour (IF NOT EXISTS).
+ */
+class SchemaMigrator {
+
+    private static final String LOCK_NAME = "guilds_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private final List<Migration> migrations;
+
+    SchemaMigrator(List<Migration> migrations) {
+        this.migrations = migrations.stream().sorted(Comparator.comparingInt(Migration::version)).toList();
+    }
+
+    /**
+     * Les serveurs qui démarrent en même temps attendent que le premier ait terminé les migrations
+     */
+    void migrate(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS guilds_schema_version(" +
+                "version INTEGER PRIMARY KEY," +
+                "description VARCHAR(255)," +
+                "appliedAt DATETIME DEFAULT NOW()" +
+                ");")) {
+            ps.executeUpdate();
+        }
+
+        if (!acquireLock(connection)) {
+            throw new SQLException("Impossible d'obtenir le verrou de migration du schéma.");
+        }
+
+        try {
+            int current = getCurrentVersion(connection);
+            for (Migration migration : migrations) {
+                if (migration.version() <= current) {
+                    continue;
+                }
+
+                GuildsPlugin.getInstance().getLogger().info("Migration du schéma vers la version " + migration.version() + " : " + migration.description());
+                migration.step().apply(connection);
+                setVersion(connection, migration);
+            }
+        } finally {
+            releaseLock(connection);
+        }
+    }
+
+    private int getCurrentVersion(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT MAX(version) FROM guilds_schema_version;");
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void setVersion(Connection connection, Migration migration) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("INSERT IGNORE INTO guilds_schema_version(version, description) VALUES (?, ?);")) {
+            ps.setInt(1, migration.version());
+            ps.setString(2, migration.description());
+            ps.executeUpdate();
+        }
+    }
+
+    private boolean acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, ?);")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?);")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    /**
+     * @param version Numéro de la migration, ne doit plus changer une fois publiée
+     */
+    record Migration(int version, String description, Step step) {
+
+        static Migration of(int version, String description, String... statements) {
+            return new Migration(version, description, connection -> {
+                for (String statement : statements) {
+                    try (PreparedStatement ps = connection.prepareStatement(statement)) {
+                        ps.executeUpdate();
+                    }
+                }
+            });
+        }
+    }
+}
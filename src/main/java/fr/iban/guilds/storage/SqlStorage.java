@@ -5,130 +5,218 @@ import com.google.gson.reflect.TypeToken;
 import fr.iban.common.data.sql.DbAccess;
 import fr.iban.common.teleport.SLocation;
 import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.enums.GuildLogType;
+import fr.iban.guilds.enums.GuildPlayerField;
 import fr.iban.guilds.enums.GuildPermission;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
 import fr.iban.guilds.model.GuildRank;
+import fr.iban.guilds.model.dto.GuildAllianceDTO;
+import fr.iban.guilds.model.dto.GuildChanges;
+import fr.iban.guilds.model.dto.GuildLogEntry;
+import fr.iban.guilds.model.dto.GuildLogEvent;
+import fr.iban.guilds.model.dto.GuildPlayerChanges;
 import fr.iban.guilds.model.dto.GuildPlayerDTO;
+import fr.iban.guilds.model.dto.PendingGuildLog;
+import org.jetbrains.annotations.Nullable;
 
 import javax.sql.DataSource;
 import java.lang.reflect.Type;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class SqlStorage {
 
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String LOG_COLUMNS = "id, guild_id, type, actor, target, amount, payload, log, createdAt";
+
     private final DataSource ds = DbAccess.getDataSource();
     private final Gson gson = new Gson();
+    private final Type permissionsType = new TypeToken<Set<GuildPermission>>() {}.getType();
+    private final Type payloadType = new TypeToken<Map<String, String>>() {}.getType();
+    private final boolean legacyPermissionsJson;
 
-    public SqlStorage() {
-        init();
-    }
-
-    private void init() {
-        String[] createStatements = new String[]{
-                "CREATE TABLE IF NOT EXISTS guilds(" +
-                        "id UUID PRIMARY KEY DEFAULT (UUID())," +
-                        "name VARCHAR(255) UNIQUE ," +
-                        "balance FLOAT DEFAULT 0," +
-                        "exp BIGINT DEFAULT 0," +
-                        "home VARCHAR(255)," +
-                        "owner_uuid UUID," +
-                        "createdAt DATETIME DEFAULT NOW()" +
-                        "); ",
-                "CREATE TABLE IF NOT EXISTS guilds_ranks(" +
-                        "id UUID PRIMARY KEY DEFAULT (UUID())," +
-                        "guild_id UUID, " +
-                        "label VARCHAR(255), " +
-                        "rank_order INTEGER DEFAULT 0, " +
-                        "permissions JSON, " +
-                        "UNIQUE KEY unique_guild_rank (guild_id, label), " +
-                        "FOREIGN KEY (guild_id) REFERENCES guilds(id) ON DELETE CASCADE" +
-                        ");",
-                "CREATE TABLE IF NOT EXISTS guilds_logs(" +
-                        "id INTEGER PRIMARY KEY AUTO_INCREMENT ," +
-                        "guild_id UUID ," +
-                        "log TEXT," +
-                        "createdAt DATETIME DEFAULT NOW()," +
-                        "FOREIGN KEY (guild_id) REFERENCES guilds(id) ON DELETE CASCADE" +
-                        ");",
-                "CREATE TABLE IF NOT EXISTS guilds_members(" +
-                        "guild_id UUID ," +
-                        "player_uuid UUID UNIQUE ," +
-                        "rank_id UUID," +
-                        "chat_mode VARCHAR(50)," +
-                        "PRIMARY KEY (guild_id, player_uuid)," +
-                        "FOREIGN KEY (guild_id) REFERENCES guilds(id) ON DELETE CASCADE," +
-                        "FOREIGN KEY (rank_id) REFERENCES guilds_ranks(id)" +
-                        ");",
-                "CREATE TABLE IF NOT EXISTS guilds_alliances(" +
-                        "guild_a_id UUID," +
-                        "guild_b_id UUID," +
-                        "PRIMARY KEY (guild_a_id, guild_b_id)," +
-                        "FOREIGN KEY (guild_a_id) REFERENCES guilds(id) ON DELETE CASCADE," +
-                        "FOREIGN KEY (guild_b_id) REFERENCES guilds(id) ON DELETE CASCADE" +
-                        ");",
-        };
+    /**
+     * @param legacyPermissionsJson Lit et écrit encore la colonne JSON des permissions, le temps que tous les serveurs
+     *                              du réseau lisent le masque
+     */
+    public SqlStorage(boolean legacyPermissionsJson) {
+        this.legacyPermissionsJson = legacyPermissionsJson;
+    }
 
+    /**
+     * Les migrations déjà publiées ne doivent plus être modifiées, une évolution du schéma s'ajoute
+     * sous un nouveau numéro de version
+     */
+    private List<SchemaMigrator.Migration> getMigrations() {
+        return List.of(
+                SchemaMigrator.Migration.of(1, "Tables initiales",
+                        "CREATE TABLE IF NOT EXISTS guilds(" +
+                                "id UUID PRIMARY KEY DEFAULT (UUID())," +
+                                "name VARCHAR(255) UNIQUE ," +
+                                "balance FLOAT DEFAULT 0," +
+                                "exp BIGINT DEFAULT 0," +
+                                "home VARCHAR(255)," +
+                                "owner_uuid UUID," +
+                                "createdAt DATETIME DEFAULT NOW()" +
+                                "); ",
+                        "CREATE TABLE IF NOT EXISTS guilds_ranks(" +
+                                "id UUID PRIMARY KEY DEFAULT (UUID())," +
+                                "guild_id UUID, " +
+                                "label VARCHAR(255), " +
+                                "rank_order INTEGER DEFAULT 0, " +
+                                "permissions JSON, " +
+                                "UNIQUE KEY unique_guild_rank (guild_id, label), " +
+                                "FOREIGN KEY (guild_id) REFERENCES guilds(id) ON DELETE CASCADE" +
+                                ");",
+                        "CREATE TABLE IF NOT EXISTS guilds_logs(" +
+                                "id INTEGER PRIMARY KEY AUTO_INCREMENT ," +
+                                "guild_id UUID ," +
+                                "log TEXT," +
+                                "createdAt DATETIME DEFAULT NOW()," +
+                                "FOREIGN KEY (guild_id) REFERENCES guilds(id) ON DELETE CASCADE" +
+                                ");",
+                        "CREATE TABLE IF NOT EXISTS guilds_members(" +
+                                "guild_id UUID ," +
+                                "player_uuid UUID UNIQUE ," +
+                                "rank_id UUID," +
+                                "chat_mode VARCHAR(50)," +
+                                "PRIMARY KEY (guild_id, player_uuid)," +
+                                "FOREIGN KEY (guild_id) REFERENCES guilds(id) ON DELETE CASCADE," +
+                                "FOREIGN KEY (rank_id) REFERENCES guilds_ranks(id)" +
+                                ");",
+                        "CREATE TABLE IF NOT EXISTS guilds_alliances(" +
+                                "guild_a_id UUID," +
+                                "guild_b_id UUID," +
+                                "PRIMARY KEY (guild_a_id, guild_b_id)," +
+                                "FOREIGN KEY (guild_a_id) REFERENCES guilds(id) ON DELETE CASCADE," +
+                                "FOREIGN KEY (guild_b_id) REFERENCES guilds(id) ON DELETE CASCADE" +
+                                ");"),
+                SchemaMigrator.Migration.of(2, "Version des guildes",
+                        "ALTER TABLE guilds ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;"),
+                SchemaMigrator.Migration.of(3, "Index du journal par date",
+                        "CREATE INDEX IF NOT EXISTS idx_guilds_logs_guild_created ON guilds_logs (guild_id, createdAt, id);"),
+                new SchemaMigrator.Migration(4, "Masque de permissions des rangs", connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement("ALTER TABLE guilds_ranks ADD COLUMN IF NOT EXISTS permissions_mask BIGINT;")) {
+                        ps.executeUpdate();
+                    }
+                    migratePermissionsMask(connection);
+                }),
+                SchemaMigrator.Migration.of(5, "Événements typés du journal",
+                        "ALTER TABLE guilds_logs ADD COLUMN IF NOT EXISTS type SMALLINT, ADD COLUMN IF NOT EXISTS actor UUID, " +
+                                "ADD COLUMN IF NOT EXISTS target VARCHAR(64), ADD COLUMN IF NOT EXISTS amount DOUBLE, " +
+                                "ADD COLUMN IF NOT EXISTS payload TEXT;",
+                        "CREATE INDEX IF NOT EXISTS idx_guilds_logs_guild_type ON guilds_logs (guild_id, type, createdAt, id);"),
+                SchemaMigrator.Migration.of(6, "Index des alliances par seconde guilde",
+                        "CREATE INDEX IF NOT EXISTS idx_guilds_alliances_guild_b ON guilds_alliances (guild_b_id);"),
+                SchemaMigrator.Migration.of(7, "Cible du journal à la taille des noms de guilde",
+                        "ALTER TABLE guilds_logs MODIFY COLUMN target VARCHAR(255);"),
+                SchemaMigrator.Migration.of(8, "Index du journal par date pour la rétention",
+                        "CREATE INDEX IF NOT EXISTS idx_guilds_logs_created ON guilds_logs (createdAt, id);")
+        );
+    }
 
+    /**
+     * Une migration en échec interrompt le chargement : les guildes ne doivent pas être lues
+     * ni écrites sur un schéma qui n'est pas à jour
+     */
+    public void init() throws SQLException {
         try (Connection connection = ds.getConnection()) {
+            new SchemaMigrator(getMigrations()).migrate(connection);
+        }
+    }
 
-            for (String createStatement : createStatements) {
-                try (PreparedStatement preparedStatement = connection.prepareStatement(createStatement)) {
-                    preparedStatement.executeUpdate();
+    /**
+     * Remplit le masque de permissions des rangs qui n'ont encore que la colonne JSON
+     */
+    private void migratePermissionsMask(Connection connection) throws SQLException {
+        Map<UUID, Long> masks = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement("SELECT id, permissions FROM guilds_ranks WHERE permissions_mask IS NULL")) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    masks.put(rs.getObject("id", UUID.class), GuildPermission.toMask(parsePermissions(rs.getString("permissions"))));
                 }
             }
+        }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+        if (masks.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement("UPDATE guilds_ranks SET permissions_mask=? WHERE id=?")) {
+            for (Map.Entry<UUID, Long> entry : masks.entrySet()) {
+                ps.setLong(1, entry.getValue());
+                ps.setObject(2, entry.getKey());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private Set<GuildPermission> parsePermissions(String json) {
+        Set<GuildPermission> permissions = json == null ? null : gson.fromJson(json, permissionsType);
+        if (permissions == null) {
+            return Set.of();
         }
+        //Permissions inconnues de cette version
+        permissions.remove(null);
+        return permissions;
     }
 
-    public List<Guild> getGuilds() {
+    /**
+     * Prépare une requête de lecture dont les résultats sont transmis par lots plutôt que chargés d'un coup
+     */
+    private PreparedStatement prepareStreamed(Connection connection, String sql) throws SQLException {
+        PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.setFetchSize(STREAM_FETCH_SIZE);
+        return ps;
+    }
+
+    /**
+     * Charge toutes les guildes, sans leurs rangs, membres ni alliances
+     */
+    public List<Guild> getGuilds() throws SQLException {
         String sql = "SELECT * FROM guilds;";
         List<Guild> guilds = new ArrayList<>();
 
         try (Connection connection = ds.getConnection()) {
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = prepareStreamed(connection, sql)) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         guilds.add(getGuildFromResultSet(rs));
                     }
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
 
         return guilds;
     }
 
-    public List<GuildPlayerDTO> getGuildPlayerDTOs() {
+    public List<GuildPlayerDTO> getGuildPlayerDTOs() throws SQLException {
         String sql = "SELECT player_uuid, gm.guild_id, chat_mode, gr.label  FROM guilds_members gm " +
                 "JOIN guilds_ranks gr ON gr.id = gm.rank_id;";
         List<GuildPlayerDTO> guildPlayers = new ArrayList<>();
 
         try (Connection connection = ds.getConnection()) {
-            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            try (PreparedStatement ps = prepareStreamed(connection, sql)) {
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         guildPlayers.add(getGuildPlayerDTOFromResultSet(rs));
                     }
                 }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
 
         return guildPlayers;
     }
 
     private GuildPlayerDTO getGuildPlayerDTOFromResultSet(ResultSet resultSet) throws SQLException {
-        UUID playerUuid = UUID.fromString(resultSet.getString("player_uuid"));
-        UUID guildUniqueId = UUID.fromString(resultSet.getString("gm.guild_id"));
+        UUID playerUuid = resultSet.getObject("player_uuid", UUID.class);
+        UUID guildUniqueId = resultSet.getObject("gm.guild_id", UUID.class);
         ChatMode chatMode = ChatMode.valueOf(resultSet.getString("chat_mode"));
         String rank = resultSet.getString("gr.label");
 
@@ -141,10 +229,12 @@ public class SqlStorage {
 
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, guildId.toString());
+                ps.setObject(1, guildId);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
-                        return getGuildFromResultSet(rs);
+                        Guild guild = getGuildFromResultSet(rs);
+                        guild.setRanks(getGuildRanks(guild));
+                        return guild;
                     }
                 }
             }
@@ -156,24 +246,22 @@ public class SqlStorage {
     }
 
     private Guild getGuildFromResultSet(ResultSet resultSet) throws SQLException {
-        UUID guildId = UUID.fromString(resultSet.getString("id"));
+        UUID guildId = resultSet.getObject("id", UUID.class);
         String name = resultSet.getString("name");
         double balance = resultSet.getDouble("balance");
         long exp = resultSet.getLong("exp");
         String sloc = resultSet.getString("home");
         Date createdAt = resultSet.getTimestamp("createdAt");
-        UUID owner = UUID.fromString(resultSet.getString("owner_uuid"));
+        UUID owner = resultSet.getObject("owner_uuid", UUID.class);
         Guild guild = new Guild(guildId, name, balance, exp, createdAt);
 
         guild.setOwnerUUID(owner);
+        guild.setVersion(resultSet.getLong("version"));
 
         if (sloc != null) {
             guild.setHome(gson.fromJson(sloc, SLocation.class));
         }
 
-        List<GuildRank> ranks = getGuildRanks(guild);
-        guild.setRanks(ranks);
-
         return guild;
     }
 
@@ -184,7 +272,7 @@ public class SqlStorage {
 
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, guildId.toString());
+                ps.setObject(1, guildId);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
                         guildPlayers.add(getGuildPlayerDTOFromResultSet(rs));
@@ -205,7 +293,7 @@ public class SqlStorage {
 
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, uuid.toString());
+                ps.setObject(1, uuid);
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
                         return getGuildPlayerDTOFromResultSet(rs);
@@ -218,28 +306,146 @@ public class SqlStorage {
         return null;
     }
 
-    public void saveGuild(Guild guild) {
-        String updateStatement = "INSERT INTO guilds(id, balance, name, exp, home, owner_uuid) VALUES (?, ?, ?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE balance=VALUES(balance), exp=VALUES(exp), balance=VALUES(balance), home=VALUES(home)";
+    /**
+     * Écrit les modifications de guildes et de joueurs dans une seule transaction,
+     * en ne générant que les requêtes nécessaires aux champs modifiés
+     * @return La nouvelle version de chaque guilde modifiée, ou null si la transaction a échoué
+     */
+    public @Nullable Map<UUID, Long> saveBatch(Collection<GuildChanges> guildChanges, Collection<GuildPlayerChanges> guildPlayerChanges) {
         try (Connection connection = ds.getConnection()) {
-            try (PreparedStatement ps = connection.prepareStatement(updateStatement)) {
-                ps.setString(1, guild.getId().toString());
+            connection.setAutoCommit(false);
+
+            try {
+                insertGuilds(connection, guildChanges.stream().filter(GuildChanges::insert).toList());
+                updateGuilds(connection, guildChanges.stream().filter(changes -> !changes.insert()).toList());
+                saveRanks(connection, guildChanges);
+                insertGuildPlayers(connection, guildPlayerChanges.stream().filter(GuildPlayerChanges::insert).toList());
+                updateGuildPlayers(connection, guildPlayerChanges.stream().filter(changes -> !changes.insert()).toList());
+                deleteRanks(connection, guildChanges);
+                saveAlliances(connection, guildChanges);
+
+                Set<UUID> guildIds = new HashSet<>();
+                guildChanges.forEach(changes -> guildIds.add(changes.guild().getId()));
+                guildPlayerChanges.forEach(changes -> guildIds.add(changes.guildPlayer().getGuild().getId()));
+                Map<UUID, Long> versions = incrementVersions(connection, guildIds);
+
+                connection.commit();
+                return versions;
+            } catch (SQLException e) {
+                connection.rollback();
+                e.printStackTrace();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return null;
+    }
+
+    private Map<UUID, Long> incrementVersions(Connection connection, Set<UUID> guildIds) throws SQLException {
+        Map<UUID, Long> versions = new HashMap<>();
+        if (guildIds.isEmpty()) {
+            return versions;
+        }
+
+        try (PreparedStatement ps = connection.prepareStatement("UPDATE guilds SET version = version + 1 WHERE id=?")) {
+            for (UUID guildId : guildIds) {
+                ps.setObject(1, guildId);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        String sql = "SELECT id, version FROM guilds WHERE id IN (" + placeholders(guildIds.size()) + ")";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (UUID guildId : guildIds) {
+                ps.setObject(index++, guildId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    versions.put(rs.getObject("id", UUID.class), rs.getLong("version"));
+                }
+            }
+        }
+
+        return versions;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private void insertGuilds(Connection connection, List<GuildChanges> guildChanges) throws SQLException {
+        if (guildChanges.isEmpty()) {
+            return;
+        }
+
+        String updateStatement = "INSERT INTO guilds(id, balance, name, exp, home, owner_uuid) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE balance=VALUES(balance), exp=VALUES(exp), home=VALUES(home), owner_uuid=VALUES(owner_uuid)";
+        try (PreparedStatement ps = connection.prepareStatement(updateStatement)) {
+            for (GuildChanges changes : guildChanges) {
+                Guild guild = changes.guild();
+                ps.setObject(1, guild.getId());
                 ps.setDouble(2, guild.getBalance());
                 ps.setString(3, guild.getName());
                 ps.setLong(4, guild.getExp());
-                if (guild.getHome() == null) {
-                    ps.setNull(5, Types.VARCHAR);
-                } else {
-                    ps.setString(5, gson.toJson(guild.getHome()));
-                }
-                ps.setString(6, guild.getOwnerUUID().toString());
+                setHome(ps, 5, guild);
+                ps.setObject(6, guild.getOwnerUUID());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
 
-                ps.executeUpdate();
-                saveRanks(guild);
-                saveAlliances(guild);
+    private void updateGuilds(Connection connection, List<GuildChanges> guildChanges) throws SQLException {
+        Map<Set<GuildField>, List<Guild>> guildsByFields = new HashMap<>();
+        for (GuildChanges changes : guildChanges) {
+            if (!changes.fields().isEmpty()) {
+                guildsByFields.computeIfAbsent(changes.fields(), fields -> new ArrayList<>()).add(changes.guild());
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        }
+
+        for (Map.Entry<Set<GuildField>, List<Guild>> entry : guildsByFields.entrySet()) {
+            List<GuildField> fields = List.copyOf(entry.getKey());
+            String columns = fields.stream().map(field -> getGuildColumn(field) + "=?").collect(Collectors.joining(", "));
+
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE guilds SET " + columns + " WHERE id=?")) {
+                for (Guild guild : entry.getValue()) {
+                    int index = 1;
+                    for (GuildField field : fields) {
+                        switch (field) {
+                            case NAME -> ps.setString(index, guild.getName());
+                            case BALANCE -> ps.setDouble(index, guild.getBalance());
+                            case EXP -> ps.setLong(index, guild.getExp());
+                            case HOME -> setHome(ps, index, guild);
+                            case OWNER -> ps.setObject(index, guild.getOwnerUUID());
+                        }
+                        index++;
+                    }
+                    ps.setObject(index, guild.getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private static String getGuildColumn(GuildField field) {
+        return switch (field) {
+            case NAME -> "name";
+            case BALANCE -> "balance";
+            case EXP -> "exp";
+            case HOME -> "home";
+            case OWNER -> "owner_uuid";
+        };
+    }
+
+    private void setHome(PreparedStatement ps, int index, Guild guild) throws SQLException {
+        if (guild.getHome() == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, gson.toJson(guild.getHome()));
         }
     }
 
@@ -247,7 +453,7 @@ public class SqlStorage {
         String updateStatement = "DELETE FROM guilds WHERE id=?";
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement preparedStatement = connection.prepareStatement(updateStatement)) {
-                preparedStatement.setString(1, guildID.toString());
+                preparedStatement.setObject(1, guildID);
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -255,74 +461,384 @@ public class SqlStorage {
         }
     }
 
-    public void saveGuildPlayer(GuildPlayer guildPlayer) {
+    private void insertGuildPlayers(Connection connection, List<GuildPlayerChanges> guildPlayerChanges) throws SQLException {
+        if (guildPlayerChanges.isEmpty()) {
+            return;
+        }
+
         String updateStatement = "INSERT INTO guilds_members(guild_id, player_uuid, rank_id, chat_mode) VALUES (?, ?,?, ?) "
                 + "ON DUPLICATE KEY UPDATE guild_id=VALUES(guild_id), player_uuid=VALUES(player_uuid), rank_id=VALUES(rank_id), chat_mode=VALUES(chat_mode)";
-        try (Connection connection = ds.getConnection()) {
-            try (PreparedStatement preparedStatement = connection.prepareStatement(updateStatement)) {
-                preparedStatement.setString(1, guildPlayer.getGuild().getId().toString());
-                preparedStatement.setString(2, guildPlayer.getUuid().toString());
-                preparedStatement.setString(3, guildPlayer.getRank().getId().toString());
+        try (PreparedStatement preparedStatement = connection.prepareStatement(updateStatement)) {
+            for (GuildPlayerChanges changes : guildPlayerChanges) {
+                GuildPlayer guildPlayer = changes.guildPlayer();
+                preparedStatement.setObject(1, guildPlayer.getGuild().getId());
+                preparedStatement.setObject(2, guildPlayer.getUuid());
+                preparedStatement.setObject(3, guildPlayer.getRank().getId());
                 preparedStatement.setString(4, guildPlayer.getChatMode().toString());
-                preparedStatement.executeUpdate();
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    private void updateGuildPlayers(Connection connection, List<GuildPlayerChanges> guildPlayerChanges) throws SQLException {
+        Map<Set<GuildPlayerField>, List<GuildPlayer>> playersByFields = new HashMap<>();
+        for (GuildPlayerChanges changes : guildPlayerChanges) {
+            if (!changes.fields().isEmpty()) {
+                playersByFields.computeIfAbsent(changes.fields(), fields -> new ArrayList<>()).add(changes.guildPlayer());
+            }
+        }
+
+        for (Map.Entry<Set<GuildPlayerField>, List<GuildPlayer>> entry : playersByFields.entrySet()) {
+            List<GuildPlayerField> fields = List.copyOf(entry.getKey());
+            String columns = fields.stream().map(field -> getGuildPlayerColumn(field) + "=?").collect(Collectors.joining(", "));
+            //Les écritures de deux guildes ne sont pas ordonnées entre elles : une écriture en retard de l'ancienne
+            //guilde ne doit pas modifier la ligne du joueur dans sa nouvelle guilde
+            boolean sameGuild = !fields.contains(GuildPlayerField.GUILD);
+            String where = sameGuild ? " WHERE player_uuid=? AND guild_id=?" : " WHERE player_uuid=?";
+
+            try (PreparedStatement ps = connection.prepareStatement("UPDATE guilds_members SET " + columns + where)) {
+                for (GuildPlayer guildPlayer : entry.getValue()) {
+                    int index = 1;
+                    for (GuildPlayerField field : fields) {
+                        switch (field) {
+                            case GUILD -> ps.setObject(index, guildPlayer.getGuild().getId());
+                            case RANK -> ps.setObject(index, guildPlayer.getRank().getId());
+                            case CHAT_MODE -> ps.setString(index, guildPlayer.getChatMode().toString());
+                        }
+                        index++;
+                    }
+                    ps.setObject(index++, guildPlayer.getUuid());
+                    if (sameGuild) {
+                        ps.setObject(index, guildPlayer.getGuild().getId());
+                    }
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private static String getGuildPlayerColumn(GuildPlayerField field) {
+        return switch (field) {
+            case GUILD -> "guild_id";
+            case RANK -> "rank_id";
+            case CHAT_MODE -> "chat_mode";
+        };
+    }
+
+    /**
+     * Supprime un membre et incrémente la version de sa guilde. Seule la ligne de cette guilde est supprimée,
+     * le joueur peut déjà avoir rejoint une autre guilde dont l'écriture est passée avant.
+     * @return La nouvelle version de la guilde, ou -1 en cas d'échec
+     */
+    public long deleteGuildPlayer(UUID guildId, UUID uuid) {
+        String updateStatement = "DELETE FROM guilds_members WHERE player_uuid=? AND guild_id=?";
+        try (Connection connection = ds.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try {
+                try (PreparedStatement preparedStatement = connection.prepareStatement(updateStatement)) {
+                    preparedStatement.setObject(1, uuid);
+                    preparedStatement.setObject(2, guildId);
+                    preparedStatement.executeUpdate();
+                }
+                Long version = incrementVersions(connection, Set.of(guildId)).get(guildId);
+                connection.commit();
+                return version == null ? -1 : version;
+            } catch (SQLException e) {
+                connection.rollback();
+                e.printStackTrace();
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return -1;
     }
 
-    public void deleteGuildPlayer(UUID uuid) {
-        String updateStatement = "DELETE FROM guilds_members WHERE player_uuid=?";
+    /**
+     * Insère les événements de journal en une transaction. Une ligne dont la guilde n'est pas encore écrite
+     * (création en attente dans la file d'écriture) est refusée par la clé étrangère : les lignes sont alors
+     * insérées une à une pour écarter uniquement celles-ci.
+     * @return Les lignes refusées faute de guilde, ou null si le lot n'a pas pu être écrit
+     */
+    public @Nullable List<PendingGuildLog> addLogs(List<PendingGuildLog> logs) {
+        String insertStatement = "INSERT INTO guilds_logs(guild_id, type, actor, target, amount, payload, createdAt) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?);";
         try (Connection connection = ds.getConnection()) {
-            try (PreparedStatement preparedStatement = connection.prepareStatement(updateStatement)) {
-                preparedStatement.setString(1, uuid.toString());
-                preparedStatement.executeUpdate();
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(insertStatement)) {
+                for (PendingGuildLog log : logs) {
+                    bindLog(preparedStatement, log);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+                connection.commit();
+                return List.of();
+            } catch (SQLException e) {
+                connection.rollback();
+                if (!isMissingReference(e)) {
+                    e.printStackTrace();
+                    return null;
+                }
+            }
+
+            //Une instruction refusée n'annule qu'elle-même, les autres lignes restent dans la transaction
+            List<PendingGuildLog> missingGuild = new ArrayList<>();
+            try (PreparedStatement preparedStatement = connection.prepareStatement(insertStatement)) {
+                for (PendingGuildLog log : logs) {
+                    bindLog(preparedStatement, log);
+                    try {
+                        preparedStatement.executeUpdate();
+                    } catch (SQLException e) {
+                        if (!isMissingReference(e)) {
+                            throw e;
+                        }
+                        missingGuild.add(log);
+                    }
+                }
+                connection.commit();
+                return missingGuild;
+            } catch (SQLException e) {
+                connection.rollback();
+                e.printStackTrace();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private void bindLog(PreparedStatement ps, PendingGuildLog log) throws SQLException {
+        GuildLogEvent event = log.event();
+        ps.setObject(1, log.guildId());
+        ps.setInt(2, event.type().getCode());
+        ps.setObject(3, event.actor());
+        ps.setString(4, event.target());
+        ps.setDouble(5, event.amount());
+        ps.setString(6, event.payload().isEmpty() ? null : gson.toJson(event.payload()));
+        ps.setTimestamp(7, Timestamp.valueOf(log.createdAt()));
+    }
+
+    /**
+     * Erreur 1452 : la ligne référencée par une clé étrangère n'existe pas
+     */
+    private static boolean isMissingReference(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && sqlException.getErrorCode() == 1452) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param types Types d'événements comptés, null pour tous
+     */
+    public int countLogs(UUID guildId, @Nullable Collection<GuildLogType> types) {
+        String sql = "SELECT COUNT(*) FROM guilds_logs WHERE guild_id=?" + typeFilter(types) + ";";
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setObject(1, guildId);
+                bindTypes(ps, 2, types);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return 0;
     }
 
-    public void addLog(Guild guild, String text) {
-        String insertStatement = "INSERT INTO guilds_logs(guild_id, log) VALUES (" +
-                "?, ?);";
+    /**
+     * Lit les lignes qui suivent la ligne donnée, de la plus récente à la plus ancienne
+     * @param after Dernière ligne de la page précédente, null pour la première page
+     * @param types Types d'événements lus, null pour tous
+     */
+    public List<GuildLogEntry> getLogs(UUID guildId, @Nullable Collection<GuildLogType> types, @Nullable GuildLogEntry after, int limit) {
+        if (after == null) {
+            return getLogs(guildId, types, 0, limit);
+        }
+
+        String sql = "SELECT " + LOG_COLUMNS + " FROM guilds_logs WHERE guild_id=?" + typeFilter(types) +
+                " AND (createdAt < ? OR (createdAt = ? AND id < ?)) " +
+                "ORDER BY createdAt DESC, id DESC LIMIT ?;";
         try (Connection connection = ds.getConnection()) {
-            try (PreparedStatement preparedStatement = connection.prepareStatement(insertStatement)) {
-                preparedStatement.setString(1, guild.getId().toString());
-                preparedStatement.setString(2, text);
-                preparedStatement.executeUpdate();
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                Timestamp createdAt = Timestamp.valueOf(after.createdAt());
+                ps.setObject(1, guildId);
+                int index = bindTypes(ps, 2, types);
+                ps.setTimestamp(index++, createdAt);
+                ps.setTimestamp(index++, createdAt);
+                ps.setInt(index++, after.id());
+                ps.setInt(index, limit);
+                return readLogs(ps);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return List.of();
+    }
+
+    /**
+     * Lit une page par décalage, quand la page précédente n'a pas été lue
+     */
+    public List<GuildLogEntry> getLogs(UUID guildId, @Nullable Collection<GuildLogType> types, int offset, int limit) {
+        String sql = "SELECT " + LOG_COLUMNS + " FROM guilds_logs WHERE guild_id=?" + typeFilter(types) +
+                " ORDER BY createdAt DESC, id DESC LIMIT ? OFFSET ?;";
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setObject(1, guildId);
+                int index = bindTypes(ps, 2, types);
+                ps.setInt(index++, limit);
+                ps.setInt(index, offset);
+                return readLogs(ps);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return List.of();
+    }
+
+    private static String typeFilter(@Nullable Collection<GuildLogType> types) {
+        return types == null ? "" : " AND type IN (" + placeholders(types.size()) + ")";
+    }
+
+    private static int bindTypes(PreparedStatement ps, int index, @Nullable Collection<GuildLogType> types) throws SQLException {
+        if (types != null) {
+            for (GuildLogType type : types) {
+                ps.setInt(index++, type.getCode());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return Les plus anciennes lignes antérieures à la date donnée, de la plus ancienne à la plus récente
+     */
+    public List<GuildLogEntry> getLogsBefore(LocalDateTime before, int limit) {
+        String sql = "SELECT " + LOG_COLUMNS + " FROM guilds_logs WHERE createdAt < ? ORDER BY createdAt, id LIMIT ?;";
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setTimestamp(1, Timestamp.valueOf(before));
+                ps.setInt(2, limit);
+                return readLogs(ps);
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return List.of();
     }
 
-    public List<String> getLogs(UUID guildId) {
-        List<String> logs = new ArrayList<>();
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yy HH:mm:ss");
-        String sql = "SELECT * FROM guilds_logs WHERE guild_id=? ORDER BY createdAt DESC;";
+    /**
+     * @return Les plus anciennes lignes de la guilde jusqu'à la ligne donnée incluse
+     */
+    public List<GuildLogEntry> getLogsUpTo(UUID guildId, GuildLogEntry upTo, int limit) {
+        String sql = "SELECT " + LOG_COLUMNS + " FROM guilds_logs WHERE guild_id=? " +
+                "AND (createdAt < ? OR (createdAt = ? AND id <= ?)) " +
+                "ORDER BY createdAt, id LIMIT ?;";
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, guildId.toString());
+                Timestamp createdAt = Timestamp.valueOf(upTo.createdAt());
+                ps.setObject(1, guildId);
+                ps.setTimestamp(2, createdAt);
+                ps.setTimestamp(3, createdAt);
+                ps.setInt(4, upTo.id());
+                ps.setInt(5, limit);
+                return readLogs(ps);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return List.of();
+    }
+
+    /**
+     * Exécute la tâche si aucun autre serveur ne détient le verrou nommé, et garde le verrou jusqu'à la fin
+     * de la tâche. Le verrou est libéré par la base si la connexion est perdue.
+     * @return false si le verrou est détenu par un autre serveur
+     */
+    public boolean runExclusive(String lockName, Runnable task) throws SQLException {
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT GET_LOCK(?, 0);")) {
+                ps.setString(1, lockName);
                 try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        Date createdAt = rs.getTimestamp("createdAt");
-                        String log = rs.getString("log");
-                        logs.add(dateFormat.format(createdAt) + " : " + log);
+                    if (!rs.next() || rs.getInt(1) != 1) {
+                        return false;
                     }
                 }
             }
+
+            try {
+                task.run();
+            } finally {
+                try (PreparedStatement ps = connection.prepareStatement("SELECT RELEASE_LOCK(?);")) {
+                    ps.setString(1, lockName);
+                    ps.executeQuery().close();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * @return Le nombre de lignes supprimées, ou -1 en cas d'erreur
+     */
+    public int deleteLogs(Collection<GuildLogEntry> logs) {
+        if (logs.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "DELETE FROM guilds_logs WHERE id IN (" + placeholders(logs.size()) + ");";
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int index = 1;
+                for (GuildLogEntry log : logs) {
+                    ps.setInt(index++, log.id());
+                }
+                return ps.executeUpdate();
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return -1;
+    }
+
+    private List<GuildLogEntry> readLogs(PreparedStatement ps) throws SQLException {
+        List<GuildLogEntry> logs = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                logs.add(new GuildLogEntry(rs.getInt("id"), rs.getObject("guild_id", UUID.class),
+                        rs.getTimestamp("createdAt").toLocalDateTime(), getLogEventFromResultSet(rs)));
+            }
+        }
         return logs;
     }
 
+    /**
+     * Les lignes écrites avant les événements typés n'ont que leur texte dans la colonne log
+     */
+    private GuildLogEvent getLogEventFromResultSet(ResultSet rs) throws SQLException {
+        int code = rs.getInt("type");
+        if (rs.wasNull()) {
+            return GuildLogEvent.text(Objects.requireNonNullElse(rs.getString("log"), ""));
+        }
+
+        String payload = rs.getString("payload");
+        Map<String, String> values = payload == null ? Map.of() : gson.fromJson(payload, payloadType);
+        return new GuildLogEvent(GuildLogType.fromCode(code), rs.getObject("actor", UUID.class),
+                rs.getString("target"), rs.getDouble("amount"), values);
+    }
+
     public void deleteLogs(Guild guild) {
         String insertStatement = "DELETE FROM guilds_logs WHERE guild_id=?;";
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement preparedStatement = connection.prepareStatement(insertStatement)) {
-                preparedStatement.setString(1, guild.getId().toString());
+                preparedStatement.setObject(1, guild.getId());
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -337,12 +853,12 @@ public class SqlStorage {
 
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, guild.getId().toString());
-                ps.setString(2, guild.getId().toString());
+                ps.setObject(1, guild.getId());
+                ps.setObject(2, guild.getId());
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        UUID guildAId = UUID.fromString(rs.getString("guild_a_id"));
-                        UUID guildBId = UUID.fromString(rs.getString("guild_b_id"));
+                        UUID guildAId = rs.getObject("guild_a_id", UUID.class);
+                        UUID guildBId = rs.getObject("guild_b_id", UUID.class);
 
                         if(alliances.contains(guildAId) || alliances.contains(guildBId)) {
                             continue;
@@ -363,7 +879,27 @@ public class SqlStorage {
         return alliances;
     }
 
-    public void saveAlliances(Guild guild) {
+    public List<GuildAllianceDTO> getAlliances() throws SQLException {
+        String sql = "SELECT guild_a_id, guild_b_id FROM guilds_alliances;";
+        List<GuildAllianceDTO> alliances = new ArrayList<>();
+
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = prepareStreamed(connection, sql)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        alliances.add(new GuildAllianceDTO(
+                                rs.getObject("guild_a_id", UUID.class),
+                                rs.getObject("guild_b_id", UUID.class)
+                        ));
+                    }
+                }
+            }
+        }
+
+        return alliances;
+    }
+
+    private void saveAlliances(Connection connection, Collection<GuildChanges> guildChanges) throws SQLException {
         String insertStatement = """
         INSERT INTO guilds_alliances(guild_a_id, guild_b_id) 
         VALUES (?, ?)
@@ -372,109 +908,95 @@ public class SqlStorage {
 
         String deleteStatement = """
         DELETE FROM guilds_alliances 
-        WHERE (guild_a_id = ? AND guild_b_id NOT IN (?))
-        OR (guild_b_id = ? AND guild_a_id NOT IN (?))
+        WHERE (guild_a_id = ? AND guild_b_id = ?)
+        OR (guild_a_id = ? AND guild_b_id = ?)
     """;
 
-        try (Connection connection = ds.getConnection()) {
-            connection.setAutoCommit(false);
-
-            try {
-                // Insert/Update des alliances
-                try (PreparedStatement insertPs = connection.prepareStatement(insertStatement)) {
-                    for (Guild ally : guild.getAlliances()) {
-                        insertPs.setString(1, guild.getId().toString());
-                        insertPs.setString(2, ally.getId().toString());
+        // Ajout des nouvelles alliances
+        if (guildChanges.stream().anyMatch(changes -> !changes.addedAllianceIds().isEmpty())) {
+            try (PreparedStatement insertPs = connection.prepareStatement(insertStatement)) {
+                for (GuildChanges changes : guildChanges) {
+                    for (UUID allyId : changes.addedAllianceIds()) {
+                        insertPs.setObject(1, changes.guild().getId());
+                        insertPs.setObject(2, allyId);
                         insertPs.addBatch();
                     }
-                    insertPs.executeBatch();
                 }
+                insertPs.executeBatch();
+            }
+        }
 
-                // Suppression des anciennes alliances
-                if (!guild.getAlliances().isEmpty()) {
-                    try (PreparedStatement deletePs = connection.prepareStatement(deleteStatement)) {
-                        String allyIds = guild.getAlliances().stream()
-                                .map(ally -> ally.getId().toString())
-                                .collect(Collectors.joining("','", "'", "'"));
-
-                        deletePs.setString(1, guild.getId().toString());
-                        deletePs.setString(2, allyIds);
-                        deletePs.setString(3, guild.getId().toString());
-                        deletePs.setString(4, allyIds);
-                        deletePs.executeUpdate();
+        // Suppression des alliances rompues, dans les deux sens
+        if (guildChanges.stream().anyMatch(changes -> !changes.removedAllianceIds().isEmpty())) {
+            try (PreparedStatement deletePs = connection.prepareStatement(deleteStatement)) {
+                for (GuildChanges changes : guildChanges) {
+                    UUID guildId = changes.guild().getId();
+                    for (UUID allyId : changes.removedAllianceIds()) {
+                        deletePs.setObject(1, guildId);
+                        deletePs.setObject(2, allyId);
+                        deletePs.setObject(3, allyId);
+                        deletePs.setObject(4, guildId);
+                        deletePs.addBatch();
                     }
                 }
-
-                connection.commit();
-            } catch (SQLException e) {
-                connection.rollback();
-                e.printStackTrace();
+                deletePs.executeBatch();
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
 
-    public void saveRanks(Guild guild) {
-        String insertStatement = "INSERT INTO guilds_ranks(id, guild_id, label, rank_order, permissions) VALUES (?, ?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE guild_id=VALUES(guild_id), label=VALUES(label), rank_order=VALUES(rank_order), permissions=VALUES(permissions)";
-        String deleteStatement = "DELETE FROM guilds_ranks WHERE guild_id=? AND id NOT IN (?)";
+    private void saveRanks(Connection connection, Collection<GuildChanges> guildChanges) throws SQLException {
+        if (guildChanges.stream().allMatch(changes -> changes.ranks().isEmpty())) {
+            return;
+        }
 
-        try (Connection connection = ds.getConnection()) {
-            connection.setAutoCommit(false);
+        // Hors compatibilité, la colonne JSON est vidée pour qu'une valeur périmée ne puisse plus être lue
+        String insertStatement = "INSERT INTO guilds_ranks(id, guild_id, label, rank_order, permissions, permissions_mask) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE guild_id=VALUES(guild_id), label=VALUES(label), rank_order=VALUES(rank_order), " +
+                "permissions=VALUES(permissions), permissions_mask=VALUES(permissions_mask)";
 
-            try {
-                // Insert/Update ranks
-                try (PreparedStatement insertPs = connection.prepareStatement(insertStatement)) {
-                    for (GuildRank rank : guild.getRanks()) {
-                        insertPs.setString(1, rank.getId().toString());
-                        insertPs.setString(2, guild.getId().toString());
-                        insertPs.setString(3, rank.getName());
-                        insertPs.setInt(4, rank.getOrder());
-                        insertPs.setString(5, gson.toJson(rank.getPermissions()));
-                        insertPs.addBatch();
-                    }
-                    insertPs.executeBatch();
+        // Insert/Update des rangs modifiés
+        try (PreparedStatement insertPs = connection.prepareStatement(insertStatement)) {
+            for (GuildChanges changes : guildChanges) {
+                for (GuildRank rank : changes.ranks()) {
+                    insertPs.setObject(1, rank.getId());
+                    insertPs.setObject(2, changes.guild().getId());
+                    insertPs.setString(3, rank.getName());
+                    insertPs.setInt(4, rank.getOrder());
+                    insertPs.setString(5, legacyPermissionsJson ? gson.toJson(rank.getPermissions()) : null);
+                    insertPs.setLong(6, rank.getPermissionsMask());
+                    insertPs.addBatch();
                 }
+            }
+            insertPs.executeBatch();
+        }
+    }
 
-                // Delete ranks that no longer exist
-                if (!guild.getRanks().isEmpty()) {
-                    try (PreparedStatement deletePs = connection.prepareStatement(deleteStatement)) {
-                        deletePs.setString(1, guild.getId().toString());
-                        String rankIds = guild.getRanks().stream()
-                                .map(rank -> rank.getId().toString())
-                                .collect(Collectors.joining("','", "'", "'"));
-                        deletePs.setString(2, rankIds);
-                        deletePs.executeUpdate();
-                    }
-                }
+    private void deleteRanks(Connection connection, Collection<GuildChanges> guildChanges) throws SQLException {
+        if (guildChanges.stream().allMatch(changes -> changes.removedRankIds().isEmpty())) {
+            return;
+        }
 
-                connection.commit();
-            } catch (SQLException e) {
-                connection.rollback();
-                e.printStackTrace();
+        try (PreparedStatement deletePs = connection.prepareStatement("DELETE FROM guilds_ranks WHERE id=?")) {
+            for (GuildChanges changes : guildChanges) {
+                for (UUID rankId : changes.removedRankIds()) {
+                    deletePs.setObject(1, rankId);
+                    deletePs.addBatch();
+                }
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
+            deletePs.executeBatch();
         }
     }
 
     public List<GuildRank> getGuildRanks(Guild guild) {
         String sql = "SELECT * FROM guilds_ranks WHERE guild_id=? ORDER BY rank_order;";
         List<GuildRank> ranks = new ArrayList<>();
-        Type type = new TypeToken<Set<GuildPermission>>() {}.getType();
 
         try (Connection connection = ds.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(sql)) {
-                ps.setString(1, guild.getId().toString());
+                ps.setObject(1, guild.getId());
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        ranks.add(new GuildRank(
-                                UUID.fromString(rs.getString("id")),
-                                rs.getString("label"),
-                                rs.getInt("rank_order"),
-                                gson.fromJson(rs.getString("permissions"), type)
-                        ));
+                        ranks.add(getGuildRankFromResultSet(rs));
                     }
                 }
             }
@@ -485,4 +1007,47 @@ public class SqlStorage {
         return ranks;
     }
 
+    /**
+     * Charge les rangs de toutes les guildes en une seule requête
+     * @return Les rangs triés par ordre, groupés par identifiant de guilde
+     */
+    public Map<UUID, List<GuildRank>> getGuildRanks() throws SQLException {
+        String sql = "SELECT * FROM guilds_ranks ORDER BY guild_id, rank_order;";
+        Map<UUID, List<GuildRank>> ranks = new HashMap<>();
+
+        try (Connection connection = ds.getConnection()) {
+            try (PreparedStatement ps = prepareStreamed(connection, sql)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        UUID guildId = rs.getObject("guild_id", UUID.class);
+                        ranks.computeIfAbsent(guildId, id -> new ArrayList<>()).add(getGuildRankFromResultSet(rs));
+                    }
+                }
+            }
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Le masque fait foi. La colonne JSON n'est lue que pour un rang créé par une version précédente, sans masque,
+     * ou en mode compatibilité : un serveur resté sur une version précédente ne met alors à jour que le JSON
+     * en laissant l'ancien masque.
+     */
+    private GuildRank getGuildRankFromResultSet(ResultSet rs) throws SQLException {
+        String json = rs.getString("permissions");
+        long mask = rs.getLong("permissions_mask");
+        boolean hasMask = !rs.wasNull();
+        Set<GuildPermission> permissions = hasMask && (!legacyPermissionsJson || json == null)
+                ? GuildPermission.fromMask(mask)
+                : parsePermissions(json);
+
+        return new GuildRank(
+                rs.getObject("id", UUID.class),
+                rs.getString("label"),
+                rs.getInt("rank_order"),
+                permissions
+        );
+    }
+
 }
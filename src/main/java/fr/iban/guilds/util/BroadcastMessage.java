@@ -0,0 +1,6 @@
+package fr.iban.guilds.util;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BroadcastMessage(List<UUID> recipients, String component) {}
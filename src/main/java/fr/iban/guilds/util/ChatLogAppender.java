@@ -0,0 +1,48 @@
+package fr.iban.guilds.util;
+
+import fr.iban.guilds.GuildsPlugin;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Journal du chat de guilde : les lignes sont mises en file depuis le thread du chat
+ * puis écrites par lot dans la console, hors de ce thread.
+ */
+public class ChatLogAppender {
+
+    private final GuildsPlugin plugin;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+
+    public ChatLogAppender(GuildsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        long interval = Math.max(1L, plugin.getConfiguration().getLong("chat.log-flush-interval", 20L));
+        plugin.getScheduler().runTimerAsync(this::flush, interval, interval);
+    }
+
+    public void append(String channel, String playerName, String message) {
+        pending.add(new Entry(channel, playerName, message));
+    }
+
+    public void flush() {
+        Entry entry = pending.poll();
+        if (entry == null) {
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        while (entry != null) {
+            if (!builder.isEmpty()) {
+                builder.append('\n');
+            }
+            builder.append(entry.channel()).append("Chat (").append(entry.playerName()).append(") : ").append(entry.message());
+            entry = pending.poll();
+        }
+        plugin.getLogger().info(builder.toString());
+    }
+
+    private record Entry(String channel, String playerName, String message) {}
+}
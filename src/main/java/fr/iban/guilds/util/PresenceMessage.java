@@ -0,0 +1,5 @@
+package fr.iban.guilds.util;
+
+import java.util.UUID;
+
+public record PresenceMessage(UUID playerID, boolean online) {}
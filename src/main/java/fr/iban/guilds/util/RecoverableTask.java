@@ -0,0 +1,30 @@
+package fr.iban.guilds.util;
+
+import fr.iban.guilds.model.dto.RecoveryEntry;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Tâche de stockage qui peut être conservée dans le fichier de reprise si elle n'a pas pu
+ * être exécutée avant l'arrêt du serveur.
+ */
+public class RecoverableTask implements Runnable {
+
+    private final Runnable task;
+    private final Supplier<List<RecoveryEntry>> recoveryEntries;
+
+    public RecoverableTask(Runnable task, Supplier<List<RecoveryEntry>> recoveryEntries) {
+        this.task = task;
+        this.recoveryEntries = recoveryEntries;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+
+    public List<RecoveryEntry> getRecoveryEntries() {
+        return recoveryEntries.get();
+    }
+}
@@ -0,0 +1,146 @@
+package fr.iban.guilds.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exécuteur découpé en files indépendantes : les tâches d'une même clé (une guilde) s'exécutent
+ * dans l'ordre de soumission, celles de clés différentes peuvent s'exécuter en parallèle.
+ */
+public class StripedExecutor {
+
+    private final ExecutorService[] stripes;
+    private final AtomicInteger[] queueDepths;
+    private final AtomicInteger[] maxQueueDepths;
+    private final AtomicLong[] completedTasks;
+
+    public StripedExecutor(String name, int stripeCount, boolean virtualThreads) {
+        int count = Math.max(1, stripeCount);
+        this.stripes = new ExecutorService[count];
+        this.queueDepths = new AtomicInteger[count];
+        this.maxQueueDepths = new AtomicInteger[count];
+        this.completedTasks = new AtomicLong[count];
+
+        for (int i = 0; i < count; i++) {
+            ThreadFactory threadFactory = virtualThreads
+                    ? Thread.ofVirtual().name(name + "-" + i).factory()
+                    : Thread.ofPlatform().name(name + "-" + i).factory();
+            stripes[i] = Executors.newSingleThreadExecutor(threadFactory);
+            queueDepths[i] = new AtomicInteger();
+            maxQueueDepths[i] = new AtomicInteger();
+            completedTasks[i] = new AtomicLong();
+        }
+    }
+
+    public int getStripe(Object key) {
+        int hash = Objects.hashCode(key);
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    /**
+     * Exécute la tâche sur la file associée à la clé
+     */
+    public void execute(Object key, Runnable task) {
+        executeOnStripe(getStripe(key), task);
+    }
+
+    public void executeOnStripe(int stripe, Runnable task) {
+        AtomicInteger depth = queueDepths[stripe];
+        maxQueueDepths[stripe].accumulateAndGet(depth.incrementAndGet(), Math::max);
+
+        try {
+            stripes[stripe].execute(new StripeTask(stripe, task));
+        } catch (RejectedExecutionException e) {
+            depth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Refuse les nouvelles tâches, les tâches déjà soumises continuent d'être exécutées
+     */
+    public void shutdown() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+    /**
+     * Arrête immédiatement les files
+     * @return Les tâches soumises qui n'ont pas démarré
+     */
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notStarted = new ArrayList<>();
+        for (ExecutorService stripe : stripes) {
+            for (Runnable runnable : stripe.shutdownNow()) {
+                if (runnable instanceof StripeTask stripeTask) {
+                    queueDepths[stripeTask.stripe].decrementAndGet();
+                    notStarted.add(stripeTask.task);
+                } else {
+                    notStarted.add(runnable);
+                }
+            }
+        }
+        return notStarted;
+    }
+
+    /**
+     * Attend la fin des tâches en cours après un {@link #shutdown()}
+     * @return true si toutes les files ont été vidées avant le délai
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExecutorService stripe : stripes) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !stripe.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public int getQueueDepth(int stripe) {
+        return queueDepths[stripe].get();
+    }
+
+    public int getMaxQueueDepth(int stripe) {
+        return maxQueueDepths[stripe].get();
+    }
+
+    public long getCompletedTasks(int stripe) {
+        return completedTasks[stripe].get();
+    }
+
+    private class StripeTask implements Runnable {
+
+        private final int stripe;
+        private final Runnable task;
+
+        private StripeTask(int stripe, Runnable task) {
+            this.stripe = stripe;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                queueDepths[stripe].decrementAndGet();
+                completedTasks[stripe].incrementAndGet();
+            }
+        }
+    }
+}
@@ -5,7 +5,6 @@ import com.destroystokyo.paper.profile.PlayerProfile;
 import fr.iban.guilds.GuildsPlugin;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildPlayer;
-import fr.iban.guilds.util.ChatUtils;
 import fr.maxlego08.menu.api.button.PaginateButton;
 import fr.maxlego08.menu.api.utils.Placeholders;
 import fr.maxlego08.menu.inventory.inventories.InventoryDefault;
@@ -51,7 +50,7 @@ public class GuildMemberPaginatedButton extends AbstractToggleButton implements
     protected ItemStack getPlayerItem(Player player, GuildPlayer guildPlayer) {
 
         Placeholders placeholders = new Placeholders();
-        placeholders.register("rank", ChatUtils.toMiniMessage(guildPlayer.getRank().getDisplayName()));
+        placeholders.register("rank", guildPlayer.getRank().getMiniMessageName());
 
 
         ItemStack itemstack = this.getItemStack().build(player, false, placeholders);
@@ -37,11 +37,7 @@ public class GuildPermissionPaginatedButton extends AbstractToggleButton impleme
 
             inventory.addItem(slot, getRankItem(player, guildPermission)).setClick(e -> {
                 GuildRank rank = menuManager.getMenuData(player).getCurrentRank();
-                if (rank.hasPermission(guildPermission)) {
-                    rank.removePermission(guildPermission);
-                } else {
-                    rank.addPermission(guildPermission);
-                }
+                rank.togglePermission(guildPermission);
 
                 plugin.getMenuManager().update(player);
             });
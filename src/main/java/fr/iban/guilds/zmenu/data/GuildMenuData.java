@@ -1,19 +1,29 @@
 package fr.iban.guilds.zmenu.data;
 
+import fr.iban.guilds.GuildsPlugin;
 import fr.iban.guilds.model.Guild;
 import fr.iban.guilds.model.GuildRank;
-import fr.maxlego08.menu.api.Inventory;
 
+import java.util.UUID;
+
+/**
+ * Les guildes pouvant être remplacées lors d'une synchronisation, la guilde et le rang sélectionnés
+ * sont retrouvés par leur identifiant à chaque accès.
+ */
 public class GuildMenuData {
 
     private Guild guild;
-    private GuildRank currentRank;
+    private UUID currentRankId;
 
     public GuildMenuData(Guild guild) {
         this.guild = guild;
     }
 
     public Guild getGuild() {
+        Guild current = GuildsPlugin.getInstance().getGuildManager().getGuildById(guild.getId());
+        if (current != null) {
+            guild = current;
+        }
         return guild;
     }
 
@@ -22,10 +32,13 @@ public class GuildMenuData {
     }
 
     public GuildRank getCurrentRank() {
-        return currentRank;
+        if (currentRankId == null) {
+            return null;
+        }
+        return getGuild().getRankById(currentRankId);
     }
 
     public void setCurrentRank(GuildRank currentRank) {
-        this.currentRank = currentRank;
+        this.currentRankId = currentRank == null ? null : currentRank.getId();
     }
 }
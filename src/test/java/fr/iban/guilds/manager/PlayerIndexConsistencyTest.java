@@ -0,0 +1,102 @@
+package fr.iban.guilds.manager;
+
+import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.model.Guild;
+import fr.iban.guilds.model.GuildPlayer;
+import fr.iban.guilds.model.GuildRank;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerIndexConsistencyTest {
+
+    private final Map<UUID, Guild> guilds = new HashMap<>();
+    private final Map<UUID, Guild> guildsByPlayer = new HashMap<>();
+
+    private Guild guild;
+    private Guild otherGuild;
+
+    @BeforeEach
+    void setUp() {
+        guild = createGuild("guild");
+        otherGuild = createGuild("other");
+    }
+
+    @Test
+    void consistentIndexHasNoError() {
+        addMember(guild, UUID.randomUUID());
+        addMember(otherGuild, UUID.randomUUID());
+
+        assertTrue(check().isEmpty());
+    }
+
+    @Test
+    void memberMissingFromIndex() {
+        UUID uuid = UUID.randomUUID();
+        addMember(guild, uuid);
+        guildsByPlayer.remove(uuid);
+
+        List<String> errors = check();
+        assertEquals(1, errors.size());
+        assertTrue(errors.getFirst().contains("indexed to nothing"));
+    }
+
+    @Test
+    void memberIndexedToAnotherGuild() {
+        UUID uuid = UUID.randomUUID();
+        addMember(guild, uuid);
+        guildsByPlayer.put(uuid, otherGuild);
+
+        List<String> errors = check();
+        //Membre mal indexé, et index vers une guilde dont il n'est pas membre
+        assertEquals(2, errors.size());
+    }
+
+    @Test
+    void playerIndexedToUnloadedGuild() {
+        Guild unloaded = new Guild("unloaded");
+        guildsByPlayer.put(UUID.randomUUID(), unloaded);
+
+        List<String> errors = check();
+        assertEquals(1, errors.size());
+        assertTrue(errors.getFirst().contains("unloaded guild"));
+    }
+
+    @Test
+    void replacedGuildInstanceIsReported() {
+        UUID uuid = UUID.randomUUID();
+        addMember(guild, uuid);
+
+        //Guilde rechargée : l'index pointe encore vers l'ancienne instance
+        Guild reloaded = new Guild(guild.getId(), guild.getName(), 0, 0, new Date());
+        reloaded.addMember(new GuildPlayer(uuid, reloaded, guild.getDefautRank(), ChatMode.PUBLIC));
+        guilds.put(reloaded.getId(), reloaded);
+
+        assertEquals(2, check().size());
+    }
+
+    private List<String> check() {
+        return GuildsManagerImpl.checkPlayerIndexConsistency(guilds, guildsByPlayer);
+    }
+
+    private Guild createGuild(String name) {
+        Guild created = new Guild(name);
+        created.addRank(new GuildRank(UUID.randomUUID(), "member", 0, Set.of()));
+        guilds.put(created.getId(), created);
+        return created;
+    }
+
+    private void addMember(Guild target, UUID uuid) {
+        target.addMember(new GuildPlayer(uuid, target, target.getDefautRank(), ChatMode.PUBLIC));
+        guildsByPlayer.put(uuid, target);
+    }
+}
@@ -0,0 +1,161 @@
+package fr.iban.guilds.model;
+
+import fr.iban.guilds.enums.ChatMode;
+import fr.iban.guilds.enums.GuildField;
+import fr.iban.guilds.enums.GuildPermission;
+import fr.iban.guilds.enums.GuildPlayerField;
+import fr.iban.guilds.model.dto.GuildChanges;
+import fr.iban.guilds.model.dto.GuildPlayerChanges;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GuildChangesTest {
+
+    @Test
+    void newGuildIsInsertedOnce() {
+        Guild guild = new Guild("guild");
+
+        assertTrue(guild.drainChanges().insert());
+        assertTrue(guild.drainChanges().isEmpty());
+    }
+
+    @Test
+    void changedFieldsAreMergedUntilDrained() {
+        Guild guild = loadedGuild();
+        guild.setBalance(10);
+        guild.setBalance(20);
+        guild.setExp(5);
+
+        GuildChanges changes = guild.drainChanges();
+        assertFalse(changes.insert());
+        assertEquals(Set.of(GuildField.BALANCE, GuildField.EXP), changes.fields());
+        assertTrue(guild.drainChanges().isEmpty());
+    }
+
+    @Test
+    void allianceAddedThenRemovedCancelsOut() {
+        Guild guild = loadedGuild();
+        Guild ally = loadedGuild();
+
+        guild.addAlliance(ally);
+        guild.removeAlliance(ally);
+
+        assertTrue(guild.drainChanges().isEmpty());
+    }
+
+    @Test
+    void removedAllianceIsDrained() {
+        Guild guild = loadedGuild();
+        Guild ally = loadedGuild();
+        guild.applyRemote(() -> guild.addAlliance(ally));
+
+        guild.removeAlliance(ally);
+
+        GuildChanges changes = guild.drainChanges();
+        assertEquals(Set.of(ally.getId()), changes.removedAllianceIds());
+        assertTrue(changes.addedAllianceIds().isEmpty());
+    }
+
+    @Test
+    void dirtyRanksAreDrainedOnce() {
+        Guild guild = loadedGuild();
+        GuildRank rank = guild.getRanks().getFirst();
+
+        rank.addPermission(GuildPermission.BANK_WITHDRAW);
+
+        assertEquals(List.of(rank), guild.drainChanges().ranks());
+        assertFalse(rank.isDirty());
+        assertTrue(guild.drainChanges().isEmpty());
+    }
+
+    @Test
+    void removedRankIsDrained() {
+        Guild guild = loadedGuild();
+        GuildRank rank = guild.getRanks().getLast();
+
+        guild.removeRank(rank);
+
+        GuildChanges changes = guild.drainChanges();
+        assertEquals(Set.of(rank.getId()), changes.removedRankIds());
+    }
+
+    @Test
+    void failedWriteIsRestored() {
+        Guild guild = new Guild("guild");
+        guild.setHome(null);
+        GuildChanges failed = guild.drainChanges();
+
+        guild.restoreChanges(failed);
+
+        GuildChanges retried = guild.drainChanges();
+        assertTrue(retried.insert());
+        assertEquals(Set.of(GuildField.HOME), retried.fields());
+    }
+
+    @Test
+    void restoreDoesNotResurrectAllianceRemovedSince() {
+        Guild guild = loadedGuild();
+        Guild ally = loadedGuild();
+
+        guild.addAlliance(ally);
+        GuildChanges failed = guild.drainChanges();
+        guild.removeAlliance(ally);
+        guild.restoreChanges(failed);
+
+        GuildChanges retried = guild.drainChanges();
+        assertTrue(retried.addedAllianceIds().isEmpty());
+        assertEquals(Set.of(ally.getId()), retried.removedAllianceIds());
+    }
+
+    @Test
+    void remoteChangesAreNotDirty() {
+        Guild guild = loadedGuild();
+        GuildRank newRank = new GuildRank(UUID.randomUUID(), "new", 0, Set.of());
+        newRank.markClean();
+
+        guild.applyRemote(() -> {
+            guild.setBalance(50);
+            //Insère le rang en tête : les autres rangs sont renumérotés
+            guild.addRank(newRank);
+            newRank.setOrder(-1);
+            guild.sortRanks();
+        });
+
+        assertEquals(newRank, guild.getRanks().getFirst());
+        assertTrue(guild.drainChanges().isEmpty());
+    }
+
+    @Test
+    void playerChangesAreDrainedAndRestored() {
+        Guild guild = loadedGuild();
+        GuildPlayer guildPlayer = new GuildPlayer(UUID.randomUUID(), guild, guild.getDefautRank(), ChatMode.PUBLIC);
+
+        assertTrue(guildPlayer.drainChanges().insert());
+
+        guildPlayer.setChatMode(ChatMode.GUILD);
+        GuildPlayerChanges failed = guildPlayer.drainChanges();
+        assertEquals(Set.of(GuildPlayerField.CHAT_MODE), failed.fields());
+        assertTrue(guildPlayer.drainChanges().isEmpty());
+
+        guildPlayer.restoreChanges(failed);
+        assertEquals(Set.of(GuildPlayerField.CHAT_MODE), guildPlayer.drainChanges().fields());
+    }
+
+    private static Guild loadedGuild() {
+        Guild guild = new Guild("guild-" + UUID.randomUUID());
+        guild.setRanks(List.of(
+                new GuildRank(UUID.randomUUID(), "member", 0, Set.of()),
+                new GuildRank(UUID.randomUUID(), "officer", 1, Set.of()),
+                new GuildRank(UUID.randomUUID(), "owner", 2, Set.of())
+        ));
+        guild.markClean();
+        return guild;
+    }
+}